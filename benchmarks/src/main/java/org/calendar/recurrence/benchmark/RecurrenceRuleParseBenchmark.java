@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.calendar.recurrence.RecurrenceRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link RecurrenceRule#getInstance(String)} and {@link RecurrenceRule#getInstance(ByteBuffer)} from the
+ * shortest rule to one using every supported rule part.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecurrenceRuleParseBenchmark {
+
+	@Param({ "freq", "count", "until", "byday", "ordinal_byday", "bymonthday", "all_parts" })
+	private String scenario;
+	private String rrule;
+	private ByteBuffer rruleBytes;
+
+	@Setup
+	public void setUp() {
+		rrule = rrule(scenario);
+		rruleBytes = ByteBuffer.wrap(rrule.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Benchmark
+	public RecurrenceRule parse() {
+		return RecurrenceRule.getInstance(rrule);
+	}
+
+	@Benchmark
+	public RecurrenceRule parseBytes() {
+		return RecurrenceRule.getInstance(rruleBytes);
+	}
+
+	static String rrule(String scenario) {
+		switch (scenario) {
+		case "freq":
+			return "RRULE:FREQ=DAILY";
+		case "count":
+			return "RRULE:FREQ=WEEKLY;INTERVAL=2;COUNT=10";
+		case "until":
+			return "RRULE:FREQ=DAILY;UNTIL=20301231T000000Z";
+		case "byday":
+			return "RRULE:FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR";
+		case "ordinal_byday":
+			return "RRULE:FREQ=MONTHLY;BYDAY=+1SU,-1MO";
+		case "bymonthday":
+			return "RRULE:FREQ=MONTHLY;BYMONTHDAY=1,15,-1";
+		case "all_parts":
+			return "RRULE:FREQ=MONTHLY;INTERVAL=2;COUNT=20;BYMONTH=1,4,7,10;BYMONTHDAY=1,2,3,-1;BYDAY=MO,TU,WE,TH,FR";
+		default:
+			throw new IllegalArgumentException("Unknown parse scenario:" + scenario);
+		}
+	}
+}
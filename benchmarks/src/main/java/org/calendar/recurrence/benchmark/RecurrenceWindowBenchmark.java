@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.calendar.recurrence.RecurrenceCalendar;
+import org.calendar.recurrence.RecurrenceRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the expansion of a one month window of a series started years before the window.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecurrenceWindowBenchmark {
+	private static final LocalDate START = LocalDate.of(2012, 1, 1);
+	private static final LocalDate FROM = LocalDate.of(2020, 6, 1);
+	private static final LocalDate TO = LocalDate.of(2020, 6, 30);
+
+	@Param({ "daily", "weekly", "monthly" })
+	private String scenario;
+	private RecurrenceRule rule;
+	private int[] buffer = new int[31];
+
+	@Setup
+	public void setUp() {
+		rule = RecurrenceRule.getInstance(rrule(scenario));
+	}
+
+	@Benchmark
+	public int fill() {
+		RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(START, rule);
+		return calendar.fill(buffer, 0, FROM.toEpochDay(), TO.toEpochDay());
+	}
+
+	@Benchmark
+	public void iterateAndFilter(Blackhole blackhole) {
+		RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(START, rule);
+		while (calendar.hasNext()) {
+			LocalDate date = calendar.next();
+			if (date.isAfter(TO)) {
+				break;
+			}
+			if (!date.isBefore(FROM)) {
+				blackhole.consume(date);
+			}
+		}
+	}
+
+	static String rrule(String scenario) {
+		switch (scenario) {
+		case "daily":
+			return "RRULE:FREQ=DAILY;BYDAY=MO,TU,WE,TH,FR";
+		case "weekly":
+			return "RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR";
+		case "monthly":
+			return "RRULE:FREQ=MONTHLY;BYMONTHDAY=1,15,-1";
+		default:
+			throw new IllegalArgumentException("Unknown window scenario:" + scenario);
+		}
+	}
+}
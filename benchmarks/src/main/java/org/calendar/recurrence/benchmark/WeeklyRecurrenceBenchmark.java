@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.calendar.recurrence.RecurrenceCalendar;
+import org.calendar.recurrence.RecurrenceRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the WEEKLY generator with and without the BYDAY, BYMONTHDAY and BYMONTH validators.
+ * <p>Every operation creates a fresh {@link RecurrenceCalendar} and pulls the first
+ * {@value #OCCURRENCES} occurrences from it.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WeeklyRecurrenceBenchmark {
+	static final int OCCURRENCES = 100;
+	private static final LocalDate START = LocalDate.of(2018, 1, 1);
+
+	@Param({ "plain", "byday", "interval_byday", "bymonth_byday", "bymonthday" })
+	private String scenario;
+	private RecurrenceRule rule;
+
+	@Setup
+	public void setUp() {
+		rule = RecurrenceRule.getInstance(rrule(scenario));
+	}
+
+	@Benchmark
+	public void expand(Blackhole blackhole) {
+		RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(START, rule);
+		for (int i = 0; i < OCCURRENCES && calendar.hasNext(); i++) {
+			blackhole.consume(calendar.next());
+		}
+	}
+
+	@Benchmark
+	public void expandEpochDays(Blackhole blackhole) {
+		RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(START, rule);
+		for (int i = 0; i < OCCURRENCES && calendar.hasNext(); i++) {
+			blackhole.consume(calendar.nextEpochDay());
+		}
+	}
+
+	static String rrule(String scenario) {
+		switch (scenario) {
+		case "plain":
+			return "RRULE:FREQ=WEEKLY";
+		case "byday":
+			return "RRULE:FREQ=WEEKLY;BYDAY=MO,WE,FR";
+		case "interval_byday":
+			return "RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR";
+		case "bymonth_byday":
+			return "RRULE:FREQ=WEEKLY;BYMONTH=1,7;BYDAY=SA,SU";
+		case "bymonthday":
+			return "RRULE:FREQ=WEEKLY;BYMONTHDAY=1,-1";
+		default:
+			throw new IllegalArgumentException("Unknown WEEKLY scenario:" + scenario);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * The immutable form of {@link RecurrenceRule}, in which everything the generators need is computed once, e.g.
+ * the UNTIL bound as an epoch day instead of a {@link java.util.Date} in the system default time zone.
+ * <p>It is thread-safe, any number of {@link RecurrenceCalendar} instances in any threads may expand the same
+ * compiled rule at once. It is created by {@link RecurrenceRule#compile()} or by the {@link Builder}:</p>
+ * <pre>
+ * CompiledRecurrenceRule rule = CompiledRecurrenceRule.builder(Frequency.WEEKLY)
+ *     .interval(2).until(LocalDate.of(2020, 12, 31)).byDay("MO,WE").build();
+ * RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, rule);
+ * </pre>
+ */
+public final class CompiledRecurrenceRule {
+	static final String NEVER_RECURS = "The rule never recurs, no date matches all of BYMONTH, BYMONTHDAY and BYDAY:\n";
+	private final Frequency freq;
+	private final int interval;
+	private final int count;
+	private final long untilEpochDay;
+	private final MonthValidator monthValidator;
+	private final DayOfMonthValidator dayOfMonthValidator;
+	private final DayOfWeekValidator dayOfWeekValidator;
+	private volatile CycleBitmap cycleBitmap;// computed on demand
+
+	private CompiledRecurrenceRule(Builder builder) {
+		this.freq = builder.freq;
+		this.interval = builder.interval;
+		this.count = builder.count;
+		this.untilEpochDay = builder.untilEpochDay;
+		this.monthValidator = builder.monthValidator;
+		this.dayOfMonthValidator = builder.dayOfMonthValidator;
+		this.dayOfWeekValidator = builder.dayOfWeekValidator;
+	}
+
+	/**
+	 * @param freq the frequency of repetition
+	 * @return a builder of the rule without any other rule part, i.e. every interval of frequency
+	 */
+	public static Builder builder(Frequency freq) {
+		return new Builder(freq);
+	}
+
+	/**
+	 * @param rule the rule to copy the rule parts from
+	 * @return a builder of the rule with the same rule parts as {@code rule}
+	 */
+	public static Builder builder(RecurrenceRule rule) {
+		Builder builder = new Builder(rule.getFreq()).interval(rule.getInterval()).count(rule.getCount());
+		if (rule.getUntil() != null) {
+			builder.until(rule.getUntil().toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+		}
+		builder.monthValidator = rule.getMonthValidator();
+		builder.dayOfMonthValidator = rule.getDayOfMonthValidator();
+		builder.dayOfWeekValidator = rule.getDayOfWeekValidator();
+		return builder;
+	}
+
+	/**
+	 * Checks if any date can match all of BYMONTH, BYMONTHDAY and BYDAY, regardless of the start date and the interval.
+	 * <p>A month is matched by the same days if it has the same month-of-year, the same length and the same first day
+	 * of week, and every such combination occurs in the 400-year cycle of the Gregorian calendar, so it is enough to
+	 * check the days of at most 12 * 2 * 7 months.</p>
+	 * @return false if the rule never recurs, e.g. {@code BYMONTH=2;BYMONTHDAY=30}
+	 */
+	static boolean isSatisfiable(MonthValidator monthValidator, DayOfMonthValidator dayOfMonthValidator,
+			DayOfWeekValidator dayOfWeekValidator) {
+		for (int month = 1; month <= 12; month++) {
+			if (monthValidator != null && !monthValidator.isValidMonth(month)) {
+				continue;
+			}
+			int minLength = EpochDays.lengthOfMonth(2001, month);// of a common year
+			int maxLength = EpochDays.lengthOfMonth(2000, month);// of a leap year
+			for (int length = minLength; length <= maxLength; length++) {
+				int days = dayOfMonthValidator == null ? -2 : dayOfMonthValidator.daysOfMonth(length);
+				for (int firstDayOfWeek = 1; firstDayOfWeek <= 7; firstDayOfWeek++) {
+					if ((dayOfWeekValidator == null ? days
+							: days & dayOfWeekValidator.daysOfMonth(firstDayOfWeek, length)) != 0) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return a new generator of the rule, which is not shared
+	 */
+	RecurrenceGenerator newGenerator() {
+		RecurrenceGenerator generator;
+		switch (freq) {
+		case DAILY:
+			if (CycleRecurrenceGenerator.isEligible(this)) {
+				generator = new CycleRecurrenceGenerator(this);
+				break;
+			}
+			generator = new DailyRecurrenceGenerator(this);
+			break;
+		case WEEKLY:
+			generator = new WeeklyRecurrenceGenerator(this);
+			break;
+		default:
+			generator = new MonthlyRecurrenceGenerator(this);
+			break;
+		}
+		generator.setInterval(interval);
+		return generator;
+	}
+
+	/**
+	 * @param firstDayOfWeek the day-of-week of the 1st of the month, from 1 (Monday) to 7 (Sunday)
+	 * @param lengthOfMonth the length of the month, from 28 to 31
+	 * @return the days of the month which match BYMONTHDAY and BYDAY as bits, i.e. bit 1 is set for the 1st
+	 */
+	int daysOfMonth(int firstDayOfWeek, int lengthOfMonth) {
+		// -2 >>> (31 - length) is the days from the 1st to the last day of month
+		int days = -2 >>> (31 - lengthOfMonth);
+		if (dayOfMonthValidator != null) {
+			days &= dayOfMonthValidator.daysOfMonth(lengthOfMonth);
+		}
+		if (dayOfWeekValidator != null) {
+			days &= dayOfWeekValidator.daysOfMonth(firstDayOfWeek, lengthOfMonth);
+		}
+		return days;
+	}
+
+	/**
+	 * @return the days of the 400-year cycle which match the BY rule parts, it is computed once and shared by
+	 *         the generators of this rule
+	 */
+	CycleBitmap cycleBitmap() {
+		CycleBitmap bitmap = this.cycleBitmap;
+		if (bitmap == null) {
+			bitmap = CycleBitmap.of(this);
+			this.cycleBitmap = bitmap;
+		}
+		return bitmap;
+	}
+
+	/** the frequency of repetition */
+	public Frequency getFreq() {
+		return freq;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return the number of recurrences, or 0 if it is not bounded by COUNT
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the epoch day of the last date of the recurrence, inclusive, or {@link Long#MAX_VALUE} if it is not
+	 *         bounded by UNTIL
+	 */
+	public long getUntilEpochDay() {
+		return untilEpochDay;
+	}
+
+	MonthValidator getMonthValidator() {
+		return monthValidator;
+	}
+
+	DayOfMonthValidator getDayOfMonthValidator() {
+		return dayOfMonthValidator;
+	}
+
+	DayOfWeekValidator getDayOfWeekValidator() {
+		return dayOfWeekValidator;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(freq, interval, count, untilEpochDay, monthValidator, dayOfMonthValidator,
+				dayOfWeekValidator);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CompiledRecurrenceRule)) {
+			return false;
+		}
+		CompiledRecurrenceRule other = (CompiledRecurrenceRule) obj;
+		return freq == other.freq && interval == other.interval && count == other.count
+				&& untilEpochDay == other.untilEpochDay && Objects.equals(monthValidator, other.monthValidator)
+				&& Objects.equals(dayOfMonthValidator, other.dayOfMonthValidator)
+				&& Objects.equals(dayOfWeekValidator, other.dayOfWeekValidator);
+	}
+
+	/**
+	 * @return the rule in the form of iCalendar string, the UNTIL is at the start of the last day, e.g.
+	 *         {@code RRULE:FREQ=DAILY;UNTIL=20201231T000000Z}
+	 */
+	@Override
+	public String toString() {
+		String until = null;
+		if (untilEpochDay != Long.MAX_VALUE) {
+			until = LocalDate.ofEpochDay(untilEpochDay).atStartOfDay().format(RecurrenceRule.UNTIL_FORMATTER);
+		}
+		return RecurrenceRule.format(freq, interval, count, until, monthValidator, dayOfMonthValidator,
+				dayOfWeekValidator);
+	}
+
+	/**
+	 * The builder of {@link CompiledRecurrenceRule}, the values of BY rule parts are validated the same as
+	 * {@link RecurrenceRule#getInstance(String)}.
+	 */
+	public static final class Builder {
+		private final Frequency freq;
+		private int interval = 1;
+		private int count;
+		private long untilEpochDay = Long.MAX_VALUE;
+		private MonthValidator monthValidator;
+		private DayOfMonthValidator dayOfMonthValidator;
+		private DayOfWeekValidator dayOfWeekValidator;
+
+		private Builder(Frequency freq) {
+			this.freq = Objects.requireNonNull(freq, "The recurrent frequency must be specified");
+		}
+
+		public Builder interval(int interval) {
+			this.interval = interval;
+			return this;
+		}
+
+		/**
+		 * @param count the number of occurrences, 0 if it's unbounded
+		 */
+		public Builder count(int count) {
+			this.count = count;
+			return this;
+		}
+
+		/**
+		 * @param until the last date of the recurrence, inclusive
+		 */
+		public Builder until(LocalDate until) {
+			this.untilEpochDay = until.toEpochDay();
+			return this;
+		}
+
+		/**
+		 * @param months the value of BYMONTH, e.g. {@code 1,6}
+		 */
+		public Builder byMonth(String months) {
+			this.monthValidator = MonthValidator.createInstance(months);
+			return this;
+		}
+
+		/**
+		 * @param daysOfMonth the value of BYMONTHDAY, e.g. {@code 1,15,-1}
+		 */
+		public Builder byMonthDay(String daysOfMonth) {
+			this.dayOfMonthValidator = DayOfMonthValidator.createInstance(daysOfMonth);
+			return this;
+		}
+
+		/**
+		 * @param daysOfWeek the value of BYDAY, e.g. {@code MO,WE,-1FR}
+		 */
+		public Builder byDay(String daysOfWeek) {
+			this.dayOfWeekValidator = new DayOfWeekValidator(daysOfWeek);
+			return this;
+		}
+
+		/**
+		 * @throws RRuleException if the interval is not positive, the count is negative or the rule never recurs, see
+		 *         {@link RecurrenceRule#getInstance(String)}
+		 */
+		public CompiledRecurrenceRule build() {
+			if (interval < 1) {
+				throw new RRuleException("Invalid interval:" + interval);
+			}
+			if (count < 0) {
+				throw new RRuleException("Invalid count:" + count);
+			}
+			CompiledRecurrenceRule rule = new CompiledRecurrenceRule(this);
+			if (!isSatisfiable(monthValidator, dayOfMonthValidator, dayOfWeekValidator)) {
+				throw new RRuleException(NEVER_RECURS + rule);
+			}
+			return rule;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+/**
+ * The days of the 400-year cycle of the Gregorian calendar which match all of BYMONTH, BYMONTHDAY and BYDAY, as
+ * a bitmap of 146097 bits.
+ * <p>The calendar repeats exactly every 146097 days, so the BY rule parts of any rule are fully described by the
+ * bitmap, bit {@code i} is set if the epoch day {@code i}, or any epoch day {@code i + k * 146097}, matches. Finding
+ * the next matching day is a scan of 64 days at once by {@link Long#numberOfTrailingZeros(long)}, and the interval
+ * lattice of DAILY rule is applied as another mask of the same 64 days.</p>
+ * <p>It is immutable once created, so it is shared by all the calendars of the same {@link CompiledRecurrenceRule}.</p>
+ */
+final class CycleBitmap {
+	/** the result of {@link #next(long, int, long, int)} if no matching day is found */
+	static final long NOT_FOUND = Long.MIN_VALUE;
+	private static final int DAYS = EpochDays.DAYS_PER_CYCLE;
+	private static final int MONTHS = 400 * EpochDays.MONTHS_PER_YEAR;
+	private static final int WORDS = (DAYS + 63) >>> 6;
+	/** the lattice masks, bit {@code k * interval} is set for every interval up to 64 */
+	private static final long[] LATTICES = new long[65];
+	static {
+		for (int interval = 1; interval < LATTICES.length; interval++) {
+			for (int bit = 0; bit < 64; bit += interval) {
+				LATTICES[interval] |= 1L << bit;
+			}
+		}
+	}
+
+	private final long[] words;
+
+	private CycleBitmap(long[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * computes the bitmap month by month, the cycle starts at 1970-01-01 (epoch day 0) which is also the first
+	 * day of a month.
+	 */
+	static CycleBitmap of(CompiledRecurrenceRule rule) {
+		MonthValidator monthValidator = rule.getMonthValidator();
+		long[] words = new long[WORDS];
+		int index = 0;
+		for (int months = 0; months < MONTHS; months++) {
+			int month = months % EpochDays.MONTHS_PER_YEAR + 1;
+			int length = EpochDays.lengthOfMonth(1970 + months / EpochDays.MONTHS_PER_YEAR, month);
+			if (monthValidator == null || monthValidator.isValidMonth(month)) {
+				// bit 0 is the first day of month
+				long days = (rule.daysOfMonth(EpochDays.dayOfWeek(index), length) & 0xFFFFFFFFL) >>> 1;
+				int offset = index & 63;
+				words[index >>> 6] |= days << offset;
+				if (offset + length > 64) {
+					words[(index >>> 6) + 1] |= days >>> (64 - offset);
+				}
+			}
+			index += length;
+		}
+		return new CycleBitmap(words);
+	}
+
+	/**
+	 * @return true if the epoch day matches all of BYMONTH, BYMONTHDAY and BYDAY
+	 */
+	boolean contains(long epochDay) {
+		int index = (int) Math.floorMod(epochDay, (long) DAYS);
+		return (words[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * finds the first matching day on or after {@code fromEpochDay} which is also on the lattice
+	 * {@code origin + k * interval}. The interval must divide 146097, so that a full cycle is scanned at most.
+	 * @param fromEpochDay the epoch day to scan from, inclusive
+	 * @param interval the interval of the lattice
+	 * @param origin any epoch day on the lattice, e.g. the start day
+	 * @param maxSteps the maximum number of words, or of lattice days if the interval is over 64, to scan
+	 * @return the epoch day found, or {@link #NOT_FOUND}
+	 */
+	long next(long fromEpochDay, int interval, long origin, int maxSteps) {
+		if (interval >= LATTICES.length) {
+			return nextOnLattice(fromEpochDay, interval, origin, Math.min(maxSteps, DAYS / interval + 1));
+		}
+		int limit = Math.min(maxSteps, WORDS + 1);
+		long cycleStart = Math.floorDiv(fromEpochDay, (long) DAYS) * DAYS;
+		int index = (int) (fromEpochDay - cycleStart);
+		int word = index >>> 6;
+		long bits = words[word] & (-1L << index);
+		for (int steps = 0;; steps++) {
+			long wordDay = cycleStart + ((long) word << 6);
+			if (interval > 1) {
+				int first = (int) Math.floorMod(origin - wordDay, (long) interval);
+				bits &= LATTICES[interval] << first;
+			}
+			if (bits != 0) {
+				return wordDay + Long.numberOfTrailingZeros(bits);
+			}
+			if (steps >= limit) {
+				return NOT_FOUND;
+			}
+			if (++word == WORDS) {
+				word = 0;
+				cycleStart += DAYS;
+			}
+			bits = words[word];
+		}
+	}
+
+	private long nextOnLattice(long fromEpochDay, int interval, long origin, int limit) {
+		long epochDay = fromEpochDay + Math.floorMod(origin - fromEpochDay, (long) interval);
+		for (int steps = 0; !contains(epochDay); steps++) {
+			if (steps >= limit) {
+				return NOT_FOUND;
+			}
+			epochDay += interval;
+		}
+		return epochDay;
+	}
+}
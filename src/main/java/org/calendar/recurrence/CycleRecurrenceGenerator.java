@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+/**
+ * The DAILY generator of the rules with BY rule parts, which scans the {@link CycleBitmap} of the rule instead of
+ * probing the validators day by day. It is used if the interval divides the 146097 days of the 400-year cycle,
+ * e.g. 1, 3, 7, 9 or 21.
+ * <p>The bitmap is built only if the recurrence is long-lived or sparse enough to pay for it, i.e. the first
+ * {@value #WARM_UP_STEPS} recurrent dates and cursor moves are generated by {@link DailyRecurrenceGenerator}, so that
+ * a short recurrence, e.g. bounded by a small COUNT, never builds it.</p>
+ */
+class CycleRecurrenceGenerator implements RecurrenceGenerator {
+	/** the recurrent dates and cursor moves of the daily generator before the bitmap is built */
+	static final int WARM_UP_STEPS = 1024;
+	private int interval = 1;
+	private long startDay;
+	private long dayCursor;
+	private int maxCursorMoves = DEFAULT_MAX_CURSOR_MOVES;
+	private final long untilDay;
+	private final CompiledRecurrenceRule rule;
+	private final DailyRecurrenceGenerator daily;
+	private int generated;// the recurrent dates generated by the daily generator
+	private CycleBitmap bitmap;// shared by the generators of the rule, once the warm-up is over
+
+	CycleRecurrenceGenerator(CompiledRecurrenceRule rule) {
+		this.rule = rule;
+		this.untilDay = rule.getUntilEpochDay();
+		this.daily = new DailyRecurrenceGenerator(rule);
+	}
+
+	/**
+	 * @return true if the rule is DAILY with any BY rule part, and the interval divides the 400-year cycle
+	 */
+	static boolean isEligible(CompiledRecurrenceRule rule) {
+		return rule.getFreq() == Frequency.DAILY && rule.getInterval() > 0
+				&& EpochDays.DAYS_PER_CYCLE % rule.getInterval() == 0
+				&& (rule.getMonthValidator() != null || rule.getDayOfMonthValidator() != null
+						|| rule.getDayOfWeekValidator() != null);
+	}
+
+	@Override
+	public long nextEpochDay() {
+		if (bitmap == null) {
+			int steps = WARM_UP_STEPS - generated - daily.getMoves();
+			if (steps > 0) {
+				long generatedDay = daily.nextEpochDay(Math.min(steps, maxCursorMoves));
+				if (generatedDay == NO_MORE) {
+					return NO_MORE;
+				}
+				if (generatedDay != CycleBitmap.NOT_FOUND) {
+					generated++;
+					dayCursor = generatedDay + 1;
+					return generatedDay;
+				}
+			}
+			// the rest is scanned from the last recurrent date, or the start day
+			bitmap = rule.cycleBitmap();
+		}
+		long generatedDay = bitmap.next(dayCursor, interval, startDay, maxCursorMoves);
+		if (generatedDay == CycleBitmap.NOT_FOUND) {
+			// the days scanned without any recurrent date, a step is a word of 64 days, or a day of the lattice
+			long scannedDays = (maxCursorMoves - 1L) * Math.max(interval, 64);
+			if (scannedDays >= EpochDays.DAYS_PER_CYCLE) {
+				return NO_MORE;// the whole cycle is scanned, it never recurs
+			}
+			if (dayCursor + scannedDays > untilDay) {
+				return NO_MORE;
+			}
+			throw InfiniteLoopException.of(rule, dayCursor, maxCursorMoves);
+		}
+		dayCursor = generatedDay + 1;
+		return generatedDay;
+	}
+
+	@Override
+	public void setInterval(int interval) {
+		this.interval = interval;
+		daily.setInterval(interval);
+	}
+
+	@Override
+	public void setMaxCursorMoves(int maxCursorMoves) {
+		this.maxCursorMoves = maxCursorMoves;
+	}
+
+	@Override
+	public void setStartEpochDay(long startEpochDay) {
+		this.startDay = startEpochDay;
+		this.dayCursor = startEpochDay;
+		daily.setStartEpochDay(startEpochDay);
+	}
+
+	@Override
+	public void seek(long fromEpochDay) {
+		// the lattice is applied by the scan
+		this.dayCursor = fromEpochDay;
+		daily.seek(fromEpochDay);
+	}
+}
@@ -15,86 +15,126 @@
  */
 package org.calendar.recurrence;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-
+/**
+ * The DAILY generator of the rules which are not {@link CycleRecurrenceGenerator#isEligible(CompiledRecurrenceRule)
+ * eligible} for the 400-year cycle bitmap, i.e. without any BY rule part, or with an interval which does not divide
+ * the cycle, e.g. 2, 5 or 10.
+ * <p>The recurrent days are on the lattice {@code start + k * interval}, which is the residue class of the start day
+ * modulo the interval. In each month the lattice days are a mask as well, so they are intersected with the masks of
+ * BYMONTHDAY and BYDAY at once, and the cursor jumps to the first lattice day of the next month, or of the next
+ * valid month of BYMONTH, instead of probing the lattice days one by one.</p>
+ */
 class DailyRecurrenceGenerator implements RecurrenceGenerator {
+	/** the lattice masks, bit {@code k * interval} is set for every interval below 32 */
+	static final int[] LATTICES = new int[32];
+	static {
+		for (int interval = 1; interval < LATTICES.length; interval++) {
+			for (int bit = 0; bit < 32; bit += interval) {
+				LATTICES[interval] |= 1 << bit;
+			}
+		}
+	}
 	private int interval = 1;
-	private LocalDate dateCursor;
+	private long startDay;
+	private long dayCursor;// always on the lattice
+	private int maxCursorMoves = DEFAULT_MAX_CURSOR_MOVES;
+	private int moves;// the cursor moves since the generator is created
+	private final long untilDay;
+	private final CompiledRecurrenceRule rule;
 	private DayOfWeekValidator dayOfWeekValidator;
 	private DayOfMonthValidator dayOfMonthValidator;
 	private MonthValidator monthValidator;
 
-	DailyRecurrenceGenerator(RecurrenceRule rule) {
+	DailyRecurrenceGenerator(CompiledRecurrenceRule rule) {
+		this.rule = rule;
+		this.untilDay = rule.getUntilEpochDay();
 		this.dayOfWeekValidator = rule.getDayOfWeekValidator();
 		this.dayOfMonthValidator = rule.getDayOfMonthValidator();
 		this.monthValidator = rule.getMonthValidator();
 	}
 
-	public LocalDate next() {
-		while (!isValid()) {
-			moveCursor();
-		}
-		LocalDate generatedDate = dateCursor;
-		moveCursor();
-		return generatedDate;
-	}
-
-	private void moveCursor() {
-		if (!isMonthValid()) {// jump over the invalid months fast
-			LocalDate closestValidDate = monthValidator.nextClosestValidDate(dateCursor);
-			moveCloseTo(closestValidDate);
-			return;
-		}
-
-		if (!isDayOfMonthValid()) {
-			LocalDate closestValidDate = dayOfMonthValidator.nextClosestValidDate(dateCursor);
-			moveCloseTo(closestValidDate);
-			return;
+	public long nextEpochDay() {
+		long generatedDay = nextEpochDay(maxCursorMoves);
+		if (generatedDay == CycleBitmap.NOT_FOUND) {
+			throw InfiniteLoopException.of(rule, dayCursor, maxCursorMoves + 1);
 		}
-		
-		if (!isDayOfWeekValid()) {
-			LocalDate closestValidDate = dayOfWeekValidator.nextClosestValidDate(dateCursor);
-			moveCloseTo(closestValidDate);
-			return;
-		}
-		
-		dateCursor = dateCursor.plusDays(interval);
+		return generatedDay;
 	}
 
-	private void moveCloseTo(LocalDate closestValidDate) {
-		if (closestValidDate.isEqual(dateCursor)) {
-			dateCursor = dateCursor.plusDays(interval);
-			return;
+	/**
+	 * the same as {@link #nextEpochDay()}, but it gives up instead of throwing {@link InfiniteLoopException}.
+	 * @param maxMoves the maximum number of cursor moves to find the recurrent date
+	 * @return the epoch day of the next recurrent date, {@link #NO_MORE} if there is none until UNTIL, or
+	 *         {@link CycleBitmap#NOT_FOUND} if the cursor is moved {@code maxMoves} times without any recurrent date
+	 */
+	long nextEpochDay(int maxMoves) {
+		if (dayOfWeekValidator == null && dayOfMonthValidator == null && monthValidator == null) {
+			long generatedDay = dayCursor;
+			dayCursor += interval;
+			return generatedDay;
 		}
-		if (interval > 1) {
-			int intervalDays = (int)ChronoUnit.DAYS.between(dateCursor, closestValidDate);
-			int remainder = intervalDays % interval;
-			dateCursor = closestValidDate.plusDays(interval - remainder);
-		} else {
-			dateCursor = closestValidDate;
+		int moves = 0;
+		while (true) {
+			int date = EpochDays.yearMonthDay(dayCursor);
+			int dayOfMonth = EpochDays.dayOfMonth(date);
+			long nextDay;
+			if (monthValidator == null || monthValidator.isValidMonth(EpochDays.month(date))) {
+				int lengthOfMonth = EpochDays.lengthOfMonth(date);
+				long firstDayOfMonth = dayCursor - dayOfMonth + 1;
+				int days = rule.daysOfMonth(EpochDays.dayOfWeek(firstDayOfMonth), lengthOfMonth) & latticeDays(dayOfMonth);
+				if (days != 0) {
+					long generatedDay = firstDayOfMonth + Integer.numberOfTrailingZeros(days) - 1;
+					dayCursor = generatedDay + interval;
+					return generatedDay;
+				}
+				nextDay = firstDayOfMonth + lengthOfMonth;
+			} else {
+				// jump over the invalid months fast
+				nextDay = monthValidator.nextClosestValidDay(dayCursor);
+			}
+			if (nextDay > untilDay) {
+				return NO_MORE;
+			}
+			if (++moves > maxMoves) {
+				return CycleBitmap.NOT_FOUND;
+			}
+			this.moves++;
+			// the first day of the lattice on or after nextDay
+			dayCursor = nextDay + Math.floorMod(startDay - nextDay, (long) interval);
 		}
 	}
 
-	private boolean isValid() {
-		return isDayOfWeekValid() && isDayOfMonthValid() && isMonthValid();
+	/**
+	 * @param dayOfMonth the day-of-month of a lattice day
+	 * @return the lattice days from {@code dayOfMonth} to the end of month as bits, i.e. bit 1 is set for the 1st
+	 */
+	private int latticeDays(int dayOfMonth) {
+		return interval < LATTICES.length ? LATTICES[interval] << dayOfMonth : 1 << dayOfMonth;
 	}
 
-	private boolean isDayOfWeekValid() {
-		return dayOfWeekValidator == null || dayOfWeekValidator.isValid(dateCursor);
+	/**
+	 * @return the number of cursor moves without any recurrent date, since the generator is created
+	 */
+	int getMoves() {
+		return moves;
 	}
 
-	private boolean isDayOfMonthValid() {
-		return this.dayOfMonthValidator == null || this.dayOfMonthValidator.isValid(dateCursor);
+	@Override
+	public void setMaxCursorMoves(int maxCursorMoves) {
+		this.maxCursorMoves = maxCursorMoves;
 	}
 
-	private boolean isMonthValid() {
-		return monthValidator == null || monthValidator.isValid(dateCursor);
+	@Override
+	public void setStartEpochDay(long startEpochDay) {
+		this.startDay = startEpochDay;
+		this.dayCursor = startEpochDay;
 	}
 
 	@Override
-	public void setStartDate(LocalDate startDate) {
-		this.dateCursor = startDate;
+	public void seek(long fromEpochDay) {
+		// the first day of the interval lattice on or after fromEpochDay
+		long intervals = (fromEpochDay - startDay + interval - 1) / interval;
+		this.dayCursor = startDay + intervals * interval;
 	}
 
 	@Override
@@ -16,10 +16,7 @@
 package org.calendar.recurrence;
 
 import java.time.LocalDate;
-import java.time.temporal.TemporalAdjusters;
-import java.util.Optional;
-import java.util.TreeSet;
-import java.util.regex.Pattern;
+import java.util.StringJoiner;
 /**
  * 
  * @author <a href="mailto:raindy.ye@outlook.com">Raindy, Ye</a>
@@ -28,45 +25,67 @@ import java.util.regex.Pattern;
 public class DayOfMonthValidator implements Validator {
 
 	private static final String DELIMITER = ",";
-	private static final Pattern ORDINAL_DAY_PATTERN = Pattern.compile("^[-+]?0*((?:[12]?\\d)|(?:3[01]))$");
-	private boolean[] validDays;// day-of-month, from 1 to 31
-	private TreeSet<Integer> ordinalDays = new TreeSet<>();
+	private static final int MIN_LENGTH_OF_MONTH = 28;
+	private final long days;
+	/**
+	 * the valid days of month as bits, i.e. bit 1 is set if the 1st is valid, for each length of month from 28
+	 * to 31, in which the positive and the reversed order days are combined
+	 */
+	private final int[] monthDays = new int[4];
 
-	public static DayOfMonthValidator createInstance(String rule) {
-		DayOfMonthValidator validator = new DayOfMonthValidator();
-		String[] dayStrArr = rule.split(DELIMITER);
-		for (String dayStr : dayStrArr) {
-			String dayTrimed = dayStr.trim();
-			if (!ORDINAL_DAY_PATTERN.matcher(dayTrimed).find()) {
-				throw new RRuleException("Invalid day of month:" + rule);
-			}
-			short oridnalDay = Short.parseShort(dayTrimed);
-			if (oridnalDay < 0) {
+	/**
+	 * @param days the positive days as bits in the low 32 bits, and the negative days as bits in the high 32
+	 *            bits, i.e. bit 1 is set for the 1st, and bit 33 is set for the last day of month
+	 */
+	DayOfMonthValidator(long days) {
+		this.days = days;
+		int positiveDays = (int) days & -2;
+		int negativeDays = (int) (days >>> 32) & -2;
+		for (int length = MIN_LENGTH_OF_MONTH; length <= 31; length++) {
+			int validDays = positiveDays;
+			for (int dayOfMonth = 1; dayOfMonth <= length; dayOfMonth++) {
 				// reversed order i.e. -1 => the last day of month
-				validator.ordinalDays.add(oridnalDay + 1);
-			} else {
-				if (validator.validDays == null) {
-					validator.validDays = new boolean[32];// day-of-month, from 1 to 31
+				if ((negativeDays & (1 << (length + 1 - dayOfMonth))) != 0) {
+					validDays |= 1 << dayOfMonth;
 				}
-				validator.validDays[oridnalDay] = true;
 			}
+			// -2 >>> (31 - length) keeps the days from the 1st to the last day of month
+			monthDays[length - MIN_LENGTH_OF_MONTH] = validDays & (-2 >>> (31 - length));
 		}
-		return validator;
+	}
+
+	public static DayOfMonthValidator createInstance(String rule) {
+		return new DayOfMonthValidator(RRuleParser.parseDaysOfMonth(rule));
 	}
 
 	@Override
 	public boolean isValid(LocalDate date) {
-		int dayOfMonth = date.getDayOfMonth();
-		if (validDays != null && validDays[dayOfMonth]) {
-			return true;
-		}
-		// The number of last day of the Month.
-		// For example:
-		// reversedOrder=0 => the last day of the Month
-		// reversedOrder=1 => the second of last day of the Month
-		LocalDate lastDayOfMonth = date.with(TemporalAdjusters.lastDayOfMonth());
-		return ordinalDays.stream()
-				.anyMatch(reversedOrder -> dayOfMonth == lastDayOfMonth.plusDays(reversedOrder).getDayOfMonth());
+		return isValid(date.getDayOfMonth(), date.lengthOfMonth());
+	}
+
+	/**
+	 * @param dayOfMonth the day-of-month, from 1 to {@code lengthOfMonth}
+	 * @param lengthOfMonth the number of days of the month
+	 * @return true if the day is one of the positive days, or one of the reversed order days
+	 */
+	boolean isValid(int dayOfMonth, int lengthOfMonth) {
+		return (daysOfMonth(lengthOfMonth) & (1 << dayOfMonth)) != 0;
+	}
+
+	/**
+	 * @param lengthOfMonth the number of days of the month
+	 * @return the valid days of the month as bits, i.e. bit 1 is set if the 1st is valid, so that it can be
+	 *         intersected with the days of the other rule parts
+	 */
+	int daysOfMonth(int lengthOfMonth) {
+		return monthDays[lengthOfMonth - MIN_LENGTH_OF_MONTH];
+	}
+
+	/**
+	 * @return the positive days as bits in the low 32 bits, and the negative days as bits in the high 32 bits
+	 */
+	long days() {
+		return days;
 	}
 
 	/**
@@ -76,36 +95,58 @@ public class DayOfMonthValidator implements Validator {
 	 * @return the next valid day or the last day of month
 	 */
 	public LocalDate nextClosestValidDate(LocalDate currentDate) {
-		int curDayOfMonth = currentDate.getDayOfMonth();
-		int dayOfMonth = curDayOfMonth;
-		int lastDayOfMonth = currentDate.with(TemporalAdjusters.lastDayOfMonth()).getDayOfMonth();
-		if (validDays != null) {
-			// find the first valid day from (currentDayOfMonth, lastDayOfMonth]
-			while(dayOfMonth < lastDayOfMonth) {
-				dayOfMonth++;
-				if (validDays[dayOfMonth]) {
-					break;
-				}
-			}
-		} else {
-			//find if exist a valid day more close to current day
-			Optional<Integer> reversedDay = ordinalDays.stream().filter(reversed -> (lastDayOfMonth + reversed) > curDayOfMonth).findFirst();
-			if (reversedDay.isPresent()) {
-				return currentDate.plusDays(lastDayOfMonth + reversedDay.get() - curDayOfMonth);
-			}
-			return currentDate.withDayOfMonth(lastDayOfMonth);
+		return LocalDate.ofEpochDay(nextClosestValidDay(currentDate.toEpochDay()));
+	}
+
+	/**
+	 * the same as {@link #nextClosestValidDate(LocalDate)} but on epoch days.
+	 * @param epochDay
+	 * @return the epoch day of the next valid day or the last day of month
+	 */
+	long nextClosestValidDay(long epochDay) {
+		int date = EpochDays.yearMonthDay(epochDay);
+		int curDayOfMonth = EpochDays.dayOfMonth(date);
+		int lastDayOfMonth = EpochDays.lengthOfMonth(date);
+		// -2 << curDayOfMonth keeps the days after curDayOfMonth, it is 0 for the 31st
+		int nextDays = daysOfMonth(lastDayOfMonth) & (-2 << curDayOfMonth);
+		if (nextDays == 0) {
+			return epochDay + lastDayOfMonth - curDayOfMonth;
 		}
-		int interval = dayOfMonth - curDayOfMonth;
+		return epochDay + Integer.numberOfTrailingZeros(nextDays) - curDayOfMonth;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(days);
+	}
 
-		//find if exist a valid day more close to current day
-		Optional<Integer> closest = ordinalDays.stream().filter(reversedOrdinal -> {
-			int day = lastDayOfMonth + reversedOrdinal - curDayOfMonth;
-			return day > 0 && day < interval;
-		}).findFirst();
-		
-		if (closest.isPresent()) {
-			return currentDate.plusDays(lastDayOfMonth + closest.get() - curDayOfMonth);
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DayOfMonthValidator)) {
+			return false;
+		}
+		return days == ((DayOfMonthValidator) obj).days;
+	}
+
+	/**
+	 * @return the days in the form of BYMONTHDAY value, e.g. {@code 1,15,-1}
+	 */
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(DELIMITER);
+		for (int dayOfMonth = 1; dayOfMonth <= 31; dayOfMonth++) {
+			if ((days & (1L << dayOfMonth)) != 0) {
+				joiner.add(String.valueOf(dayOfMonth));
+			}
+		}
+		for (int dayOfMonth = 1; dayOfMonth <= 31; dayOfMonth++) {
+			if ((days & (1L << (dayOfMonth + 32))) != 0) {
+				joiner.add(String.valueOf(-dayOfMonth));
+			}
 		}
-		return currentDate.plusDays(interval);
+		return joiner.toString();
 	}
 }
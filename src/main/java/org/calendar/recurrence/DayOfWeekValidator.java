@@ -17,13 +17,11 @@ package org.calendar.recurrence;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.temporal.TemporalAdjuster;
-import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.StringJoiner;
 /**
  * 
  * @author <a href="mailto:raindy.ye@outlook.com">Raindy, Ye</a>
@@ -31,67 +29,250 @@ import java.util.regex.Pattern;
  */
 public class DayOfWeekValidator implements Validator {
 	private static final String DELIMITER = ",";
-	private static final Pattern ORDINAL_DAY_PATTERN = Pattern.compile("^([-+]?\\d)(\\w{2})$");
+	private static final int MIN_LENGTH_OF_MONTH = 28;
+	private static final int ORDINALS = 5;// a month has 5 days of week at most
+	/**
+	 * the days of month of the ordinals of a day of week from the 1st and from the last day of month, by the first
+	 * day of week and length of month, the day of week and the ordinals as bits, see {@link #ordinalDays}
+	 */
+	private static final int[] FIRST_ORDINAL_DAYS = new int[7 * 4 * 7 << ORDINALS];
+	private static final int[] LAST_ORDINAL_DAYS = new int[7 * 4 * 7 << ORDINALS];
 	private boolean[] validWeekDays;
 	private List<OrdinalDayOfWeekInMonth> ordinalDayOfWeeks = new ArrayList<>(0);
+	/**
+	 * the valid days of month as bits, i.e. bit 1 is set if the 1st is valid, for each first day of week and
+	 * length of month, which are all the ordinal days of week depend on
+	 */
+	private final int[] monthDays = new int[7 * 4];
 
-	public DayOfWeekValidator(String rule) {
-		String[] WeekDayStrArr = rule.split(DELIMITER);
-		try {
-			for (String weekDayStr : WeekDayStrArr) {
-				Matcher ordinalDay = ORDINAL_DAY_PATTERN.matcher(weekDayStr);
-				if (ordinalDay.find()) {
-					short ordinalNum = Short.parseShort(ordinalDay.group(1));
-					DayOfWeek weekDay = getByShortName(ordinalDay.group(2));
-					ordinalDayOfWeeks.add(new OrdinalDayOfWeekInMonth(ordinalNum, weekDay));
-				} else {
-					if (this.validWeekDays == null) {
-						// length is 8, as Monday to Sunday is from 1 to 7
-						validWeekDays = new boolean[8];
+	static {
+		for (int ordinals = 0; ordinals < 1 << ORDINALS; ordinals++) {
+			// the ordinals spread over the weeks, i.e. bit 7 * (n - 1) is set for the ordinal n
+			int weeks = 0;
+			for (int ordinal = 0; ordinal < ORDINALS; ordinal++) {
+				weeks |= (ordinals >>> ordinal & 1) << ordinal * 7;
+			}
+			for (int firstDayOfWeek = 1; firstDayOfWeek <= 7; firstDayOfWeek++) {
+				for (int length = MIN_LENGTH_OF_MONTH; length <= 31; length++) {
+					int lastDayOfWeek = (firstDayOfWeek + length - 2) % 7 + 1;
+					for (int dayOfWeek = 1; dayOfWeek <= 7; dayOfWeek++) {
+						int index = ordinalIndex(firstDayOfWeek, length, dayOfWeek, ordinals);
+						// the days after the last day of month are shifted out, or cleared by -2 >>> (31 - length)
+						int first = (dayOfWeek - firstDayOfWeek + 7) % 7 + 1;
+						FIRST_ORDINAL_DAYS[index] = weeks << first & (-2 >>> (31 - length));
+						// the days counted from the last day of month, which are reversed to the days from the 1st
+						int fromLast = (lastDayOfWeek - dayOfWeek + 7) % 7 + 1;
+						int days = weeks << fromLast & (-2 >>> (31 - length));
+						LAST_ORDINAL_DAYS[index] = Integer.reverse(days) >>> (31 - length) << 1;
 					}
-					DayOfWeek weekDay = getByShortName(weekDayStr);
-					this.validWeekDays[weekDay.getValue()] = true;
 				}
 			}
-		} catch (Exception e) {
-			throw new RRuleException("Invalid day of week[" + rule + "]");
 		}
 	}
+
+	public DayOfWeekValidator(String rule) {
+		this(RRuleParser.parseDaysOfWeek(rule));
+	}
+
+	/**
+	 * @param days the days of week, each one is {@code (ordinal << 3) | dayOfWeek}, the ordinal is 0 for every
+	 *            day of week, e.g. {@code MO}, and the day of week is from 1 (Monday) to 7 (Sunday)
+	 */
+	DayOfWeekValidator(int[] days) {
+		for (int day : days) {
+			DayOfWeek weekDay = DayOfWeek.of(day & 7);
+			int ordinal = day >> 3;
+			if (ordinal != 0) {
+				ordinalDayOfWeeks.add(new OrdinalDayOfWeekInMonth((short) ordinal, weekDay));
+			} else {
+				if (this.validWeekDays == null) {
+					// length is 8, as Monday to Sunday is from 1 to 7
+					validWeekDays = new boolean[8];
+				}
+				this.validWeekDays[weekDay.getValue()] = true;
+			}
+		}
+		long first = ordinals(false);
+		long last = ordinals(true);
+		for (int firstDayOfWeek = 1; firstDayOfWeek <= 7; firstDayOfWeek++) {
+			for (int length = MIN_LENGTH_OF_MONTH; length <= 31; length++) {
+				int validDays = 0;
+				for (int dayOfWeek = 1; dayOfWeek <= 7; dayOfWeek++) {
+					int shift = (dayOfWeek - 1) * ORDINALS;
+					validDays |= ordinalDays(firstDayOfWeek, length, dayOfWeek, (int) (first >>> shift & 0x1F), false)
+							| ordinalDays(firstDayOfWeek, length, dayOfWeek, (int) (last >>> shift & 0x1F), true);
+				}
+				monthDays[index(firstDayOfWeek, length)] = validDays;
+			}
+		}
+	}
+
+	/**
+	 * @param firstDayOfWeek the day-of-week of the first day of month, from 1 (Monday) to 7 (Sunday)
+	 * @param lengthOfMonth the number of days of the month
+	 * @param dayOfWeek the day-of-week, from 1 (Monday) to 7 (Sunday)
+	 * @param ordinals the ordinals of the day of week as bits, i.e. bit {@code n - 1} is set for the ordinal n
+	 * @param negative true for the ordinals from the last day of month, e.g. {@code -1FR}
+	 * @return the days of the month of the ordinal days of week as bits, i.e. bit 1 is set for the 1st
+	 */
+	static int ordinalDays(int firstDayOfWeek, int lengthOfMonth, int dayOfWeek, int ordinals, boolean negative) {
+		int index = ordinalIndex(firstDayOfWeek, lengthOfMonth, dayOfWeek, ordinals);
+		return negative ? LAST_ORDINAL_DAYS[index] : FIRST_ORDINAL_DAYS[index];
+	}
+
+	private static int ordinalIndex(int firstDayOfWeek, int lengthOfMonth, int dayOfWeek, int ordinals) {
+		return (index(firstDayOfWeek, lengthOfMonth) * 7 + dayOfWeek - 1) << ORDINALS | ordinals;
+	}
+
+	private static int index(int firstDayOfWeek, int length) {
+		return (firstDayOfWeek - 1) * 4 + length - MIN_LENGTH_OF_MONTH;
+	}
+
+	/**
+	 * @param firstDayOfWeek the day-of-week of the first day of month, from 1 (Monday) to 7 (Sunday)
+	 * @param lengthOfMonth the number of days of the month
+	 * @return the valid days of the month as bits, i.e. bit 1 is set if the 1st is valid
+	 */
+	int daysOfMonth(int firstDayOfWeek, int lengthOfMonth) {
+		return monthDays[index(firstDayOfWeek, lengthOfMonth)];
+	}
 	
+	/**
+	 * find the next valid day of week until reach to the Sunday of the week, or the next day if
+	 * there is only ordinal days of week.
+	 * @param currentDate the date to find from, which is excluded
+	 * @return the next valid day of week, or the Sunday of the week if no valid day of week found
+	 */
 	public LocalDate nextClosestValidDate(LocalDate currentDate) {
-		int dayOfWeek = currentDate.getDayOfWeek().getValue();
-		while(dayOfWeek < 7) {
-			dayOfWeek++;
-			if (validWeekDays[dayOfWeek]) {
-				break;
+		return LocalDate.ofEpochDay(nextClosestValidDay(currentDate.toEpochDay()));
+	}
+
+	/**
+	 * the same as {@link #nextClosestValidDate(LocalDate)} but on epoch days.
+	 * @param epochDay the epoch day to find from, which is excluded
+	 * @return the epoch day of the next valid day of week, or the Sunday of the week if no valid day of week found
+	 */
+	long nextClosestValidDay(long epochDay) {
+		if (validWeekDays == null) {
+			return epochDay + 1;
+		}
+		int dayOfWeek = EpochDays.dayOfWeek(epochDay);
+		// -2 << dayOfWeek keeps the days of week after it, and the Sunday is kept as the last one
+		int days = weekDays() & (-2 << dayOfWeek) | 1 << 7;
+		return epochDay + Integer.numberOfTrailingZeros(days) - dayOfWeek;
+	}
+
+	@Override
+	public boolean isValid(LocalDate date) {
+		return isValid(date.getDayOfWeek().getValue(), date.getDayOfMonth(), date.lengthOfMonth());
+	}
+
+	/**
+	 * @param dayOfWeek the day-of-week, from 1 (Monday) to 7 (Sunday)
+	 * @param dayOfMonth the day-of-month, from 1 to {@code lengthOfMonth}
+	 * @param lengthOfMonth the number of days of the month
+	 * @return true if the day of week is valid, or it is one of the ordinal days of week in the month
+	 */
+	boolean isValid(int dayOfWeek, int dayOfMonth, int lengthOfMonth) {
+		return (daysOfMonth(dayOfWeek, dayOfMonth, lengthOfMonth) & (1 << dayOfMonth)) != 0;
+	}
+
+	/**
+	 * @return the valid days of the month of the given day as bits, i.e. bit 1 is set if the 1st is valid
+	 */
+	private int daysOfMonth(int dayOfWeek, int dayOfMonth, int lengthOfMonth) {
+		// the day-of-week of the first day of month, dayOfMonth is at most 31
+		int firstDayOfWeek = (dayOfWeek - dayOfMonth + 35) % 7 + 1;
+		return monthDays[index(firstDayOfWeek, lengthOfMonth)];
+	}
+
+	/**
+	 * @return the days of week of both the plain and the ordinal days of week as bits, i.e. bit 0 is set if
+	 *         Monday or any ordinal Monday, e.g. {@code 2MO}, is valid
+	 */
+	int daysOfWeek() {
+		int days = weekDays() >>> 1;
+		for (int i = 0; i < ordinalDayOfWeeks.size(); i++) {
+			days |= 1 << (ordinalDayOfWeeks.get(i).getDay().getValue() - 1);
+		}
+		return days;
+	}
+
+	/**
+	 * @param negative true for the ordinals from the last day of month, e.g. {@code -1FR}
+	 * @return the ordinals of each day of week as bits, i.e. bit {@code (dayOfWeek - 1) * 5 + ordinal - 1} is set
+	 *         for the ordinal day of week, and a plain day of week is every ordinal from the first day of month
+	 */
+	long ordinals(boolean negative) {
+		long ordinals = 0;
+		for (int dayOfWeek = 1; !negative && dayOfWeek <= 7; dayOfWeek++) {
+			if (validWeekDays != null && validWeekDays[dayOfWeek]) {
+				ordinals |= 0x1FL << (dayOfWeek - 1) * ORDINALS;
+			}
+		}
+		for (int i = 0; i < ordinalDayOfWeeks.size(); i++) {
+			OrdinalDayOfWeekInMonth ordinalDay = ordinalDayOfWeeks.get(i);
+			int ordinal = negative ? -ordinalDay.getOrdinal() : ordinalDay.getOrdinal();
+			if (ordinal >= 1 && ordinal <= ORDINALS) {
+				ordinals |= 1L << (ordinalDay.getDay().getValue() - 1) * ORDINALS + ordinal - 1;
 			}
 		}
-		int interval = dayOfWeek - currentDate.getDayOfWeek().getValue();
-		return currentDate.plusDays(interval);
+		return ordinals;
 	}
 
-	private static DayOfWeek getByShortName(String shortName) {
-		String abbrName = shortName.toUpperCase();
-		for (DayOfWeek day : DayOfWeek.values()) {
-			if (day.name().substring(0, 2).equalsIgnoreCase(abbrName)) {
-				return day;
+	/**
+	 * @return true if there is any ordinal day of week, e.g. {@code 2MO}, which is not valid in every week
+	 */
+	boolean hasOrdinalDays() {
+		return !ordinalDayOfWeeks.isEmpty();
+	}
+
+	/**
+	 * @return the plain days of week as bits, i.e. bit 1 is set if Monday is valid
+	 */
+	private int weekDays() {
+		int days = 0;
+		for (int dayOfWeek = 1; validWeekDays != null && dayOfWeek < validWeekDays.length; dayOfWeek++) {
+			if (validWeekDays[dayOfWeek]) {
+				days |= 1 << dayOfWeek;
 			}
 		}
-		throw new NoSuchElementException();
+		return days;
 	}
 
 	@Override
-	public boolean isValid(LocalDate date) {
-		if (validWeekDays != null) {
-			if (this.validWeekDays[date.getDayOfWeek().getValue()]) {
-				return true;//just return, no need to check ordinal day of week
+	public int hashCode() {
+		return 31 * weekDays() + new HashSet<>(ordinalDayOfWeeks).hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DayOfWeekValidator)) {
+			return false;
+		}
+		DayOfWeekValidator other = (DayOfWeekValidator) obj;
+		return weekDays() == other.weekDays()
+				&& new HashSet<>(ordinalDayOfWeeks).equals(new HashSet<>(other.ordinalDayOfWeeks));
+	}
+
+	/**
+	 * @return the days of week in the form of BYDAY value, e.g. {@code MO,WE,1MO,-1FR}
+	 */
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(DELIMITER);
+		for (DayOfWeek day : DayOfWeek.values()) {
+			if (validWeekDays != null && validWeekDays[day.getValue()]) {
+				joiner.add(day.name().substring(0, 2));
 			}
 		}
-		return ordinalDayOfWeeks.stream().anyMatch(ordinalDay -> {
-				TemporalAdjuster adjuster = TemporalAdjusters.dayOfWeekInMonth(ordinalDay.getOrdinal(), ordinalDay.getDay());
-				LocalDate expectedDate = date.with(adjuster);
-				return expectedDate.equals(date);
-			});
+		for (OrdinalDayOfWeekInMonth ordinalDay : ordinalDayOfWeeks) {
+			joiner.add(ordinalDay.toString());
+		}
+		return joiner.toString();
 	}
 
 	class OrdinalDayOfWeekInMonth {
@@ -110,5 +291,27 @@ public class DayOfWeekValidator implements Validator {
 		public DayOfWeek getDay() {
 			return day;
 		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(ordinal, day);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof OrdinalDayOfWeekInMonth)) {
+				return false;
+			}
+			OrdinalDayOfWeekInMonth other = (OrdinalDayOfWeekInMonth) obj;
+			return ordinal == other.ordinal && day == other.day;
+		}
+
+		@Override
+		public String toString() {
+			return ordinal + day.name().substring(0, 2);
+		}
 	}
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+/**
+ * Calendar arithmetic on epoch days (the count of days since 1970-01-01, as used by
+ * {@link java.time.LocalDate#toEpochDay()}) which does not create any object.
+ * <p>A date is decomposed once by {@link #yearMonthDay(long)} into a packed int, and the fields are
+ * extracted from it by {@link #year(int)}, {@link #month(int)} and {@link #dayOfMonth(int)}.
+ * The packed form supports the years from -4194304 to 4194303.</p>
+ */
+final class EpochDays {
+	static final int MONTHS_PER_YEAR = 12;
+	static final int DAYS_PER_WEEK = 7;
+	/** The number of days in a 400 year cycle of the Gregorian calendar. */
+	static final int DAYS_PER_CYCLE = 146097;
+	/** The number of days from year zero to year 1970. */
+	private static final long DAYS_0000_TO_1970 = (DAYS_PER_CYCLE * 5L) - (30L * 365L + 7L);
+
+	private EpochDays() {
+	}
+
+	/**
+	 * @return the epoch day of the date, the fields are not validated
+	 */
+	static long of(int year, int month, int dayOfMonth) {
+		long y = year;
+		long total = 365 * y;
+		if (y >= 0) {
+			total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+		} else {
+			total -= y / -4 - y / -100 + y / -400;
+		}
+		total += (367 * month - 362) / 12;
+		total += dayOfMonth - 1;
+		if (month > 2) {
+			total--;
+			if (!isLeapYear(year)) {
+				total--;
+			}
+		}
+		return total - DAYS_0000_TO_1970;
+	}
+
+	/**
+	 * decomposes the epoch day into year, month and day-of-month.
+	 * @param epochDay
+	 * @return the packed date, {@code (year << 9) | (month << 5) | dayOfMonth}
+	 */
+	static int yearMonthDay(long epochDay) {
+		long zeroDay = epochDay + DAYS_0000_TO_1970;
+		// find the march-based year
+		zeroDay -= 60; // adjust to 0000-03-01 so leap day is at end of four year cycle
+		long adjust = 0;
+		if (zeroDay < 0) {
+			// adjust negative years to positive for calculation
+			long adjustCycles = (zeroDay + 1) / DAYS_PER_CYCLE - 1;
+			adjust = adjustCycles * 400;
+			zeroDay += -adjustCycles * DAYS_PER_CYCLE;
+		}
+		long yearEst = (400 * zeroDay + 591) / DAYS_PER_CYCLE;
+		long doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+		if (doyEst < 0) {
+			yearEst--;
+			doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+		}
+		yearEst += adjust;
+		int marchDoy0 = (int) doyEst;
+		// convert march-based values back to january-based
+		int marchMonth0 = (marchDoy0 * 5 + 2) / 153;
+		int month = (marchMonth0 + 2) % 12 + 1;
+		int dayOfMonth = marchDoy0 - (marchMonth0 * 306 + 5) / 10 + 1;
+		int year = (int) (yearEst + marchMonth0 / 10);
+		return (year << 9) | (month << 5) | dayOfMonth;
+	}
+
+	static int year(int yearMonthDay) {
+		return yearMonthDay >> 9;
+	}
+
+	static int month(int yearMonthDay) {
+		return (yearMonthDay >> 5) & 0xF;
+	}
+
+	static int dayOfMonth(int yearMonthDay) {
+		return yearMonthDay & 0x1F;
+	}
+
+	/**
+	 * @return the months since year 0, i.e. {@code year * 12 + month - 1}
+	 */
+	static long months(int yearMonthDay) {
+		return year(yearMonthDay) * (long) MONTHS_PER_YEAR + month(yearMonthDay) - 1;
+	}
+
+	/**
+	 * @return the day-of-week, from 1 (Monday) to 7 (Sunday)
+	 */
+	static int dayOfWeek(long epochDay) {
+		return (int) Math.floorMod(epochDay + 3, 7L) + 1;
+	}
+
+	static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	static int lengthOfMonth(int yearMonthDay) {
+		return lengthOfMonth(year(yearMonthDay), month(yearMonthDay));
+	}
+
+	/**
+	 * adds months in the same way as {@link java.time.LocalDate#plusMonths(long)}, the day-of-month
+	 * is adjusted to the last valid day of the resulting month if it would be invalid.
+	 */
+	static long plusMonths(long epochDay, long months) {
+		int date = yearMonthDay(epochDay);
+		long monthCount = months(date) + months;
+		int year = (int) Math.floorDiv(monthCount, 12);
+		int month = (int) Math.floorMod(monthCount, 12) + 1;
+		int dayOfMonth = Math.min(dayOfMonth(date), lengthOfMonth(year, month));
+		return of(year, month, dayOfMonth);
+	}
+
+	static long firstDayOfMonth(long epochDay) {
+		return epochDay - dayOfMonth(yearMonthDay(epochDay)) + 1;
+	}
+
+	/**
+	 * @return the days, the weeks from Monday, or the months since year 0 of the epoch day, by the frequency
+	 */
+	static long unit(Frequency freq, long epochDay) {
+		switch (freq) {
+		case DAILY:
+			return epochDay;
+		case WEEKLY:
+			// the epoch day 0 is Thursday, so the epoch day -3 is Monday
+			return Math.floorDiv(epochDay + 3, DAYS_PER_WEEK);
+		default:
+			return months(yearMonthDay(epochDay));
+		}
+	}
+}
@@ -31,9 +31,12 @@ package org.calendar.recurrence;
  * }
  * </pre>
  * In above example, if the method {@code food} been called 10000 within 1 second, then it will throw exception;
+ * @deprecated It depends on the speed of machine, a long expansion may be detected by mistake. The recurrence
+ *             is guarded by the number of cursor moves instead, see {@link RecurrenceGenerator#setMaxCursorMoves(int)}.
  * @author <a href="mailto:raindy.ye@outlook.com">Raindy, Ye</a>
  *
  */
+@Deprecated
 public class InfiniteLoopDetector {
 	private long start;
 	private int thresholdOfTime;//in millisecond units
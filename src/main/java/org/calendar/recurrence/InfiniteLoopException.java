@@ -14,6 +14,8 @@
  * limitations under the License.
  */
 package org.calendar.recurrence;
+
+import java.time.LocalDate;
 /**
  * 
  * @author <a href="mailto:raindy.ye@outlook.com">Raindy, Ye</a>
@@ -29,4 +31,9 @@ public class InfiniteLoopException extends RuntimeException {
 	public InfiniteLoopException() {
 		this(null);
 	}
+
+	static InfiniteLoopException of(CompiledRecurrenceRule rule, long dayCursor, int moves) {
+		return new InfiniteLoopException("Infinite loop detected! No recurrence of " + rule + " is found after "
+				+ moves + " cursor moves, the cursor is at " + LocalDate.ofEpochDay(dayCursor));
+	}
 }
@@ -16,23 +16,24 @@
 package org.calendar.recurrence;
 
 import java.time.LocalDate;
-import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.StringJoiner;
 
 public class MonthValidator implements Validator {
 	private static final String DELIMITER = ",";
 	private boolean[] validMonths = new boolean[13];// length is 13, because month-of-year field from 1 to 12.
 
-	public static MonthValidator createInstance(String rule) {
-		MonthValidator vaidator = new MonthValidator();
-		String[] monthStrArr = rule.split(DELIMITER);
-		try {
-			for (String monthStr : monthStrArr) {
-				vaidator.validMonths[Integer.parseInt(monthStr)] = true;
-			}
-		} catch (Exception e) {
-			throw new RRuleException("Invalid month:" + rule);
+	/**
+	 * @param months the months as bits, i.e. bit 1 is set for January
+	 */
+	MonthValidator(int months) {
+		for (int month = 1; month < validMonths.length; month++) {
+			validMonths[month] = (months & (1 << month)) != 0;
 		}
-		return vaidator;
+	}
+
+	public static MonthValidator createInstance(String rule) {
+		return new MonthValidator(RRuleParser.parseMonths(rule));
 	}
 
 	@Override
@@ -40,6 +41,10 @@ public class MonthValidator implements Validator {
 		return validMonths[date.getMonthValue()];
 	}
 
+	boolean isValidMonth(int month) {
+		return validMonths[month];
+	}
+
 	/**
 	 * find the first day of next valid month。
 	 * or return the last day of year if no valid day found.
@@ -47,17 +52,56 @@ public class MonthValidator implements Validator {
 	 * @return the first day of next valid month。
 	 */
 	public LocalDate nextClosestValidDate(LocalDate currentDate) {
-		int month = currentDate.getMonthValue();
-		int interval = 0;
+		return LocalDate.ofEpochDay(nextClosestValidDay(currentDate.toEpochDay()));
+	}
+
+	/**
+	 * the same as {@link #nextClosestValidDate(LocalDate)} but on epoch days.
+	 * @param epochDay
+	 * @return the epoch day of the first day of next valid month
+	 */
+	long nextClosestValidDay(long epochDay) {
+		int date = EpochDays.yearMonthDay(epochDay);
+		int year = EpochDays.year(date);
+		int month = EpochDays.month(date);
 		do {
 			if (month == 12) {
 				month = 1;
+				year++;
 			} else {
 				month++;
 			}
-			interval++;
 		} while (!validMonths[month]);
-		
-		return currentDate.plusMonths(interval).with(TemporalAdjusters.firstDayOfMonth());
+		return EpochDays.of(year, month, 1);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(validMonths);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof MonthValidator)) {
+			return false;
+		}
+		return Arrays.equals(validMonths, ((MonthValidator) obj).validMonths);
+	}
+
+	/**
+	 * @return the months in the form of BYMONTH value, e.g. {@code 1,6}
+	 */
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(DELIMITER);
+		for (int month = 0; month < validMonths.length; month++) {
+			if (validMonths[month]) {
+				joiner.add(String.valueOf(month));
+			}
+		}
+		return joiner.toString();
 	}
 }
@@ -15,91 +15,127 @@
  */
 package org.calendar.recurrence;
 
-import java.time.LocalDate;
-import java.time.temporal.TemporalAdjusters;
-
+/**
+ * The MONTHLY generator, which builds the candidate days of each recurrent month once, as the intersection of the
+ * masks of BYMONTHDAY and BYDAY (including the ordinal days of week, e.g. {@code 2MO}) clipped to the length of
+ * month, or the day-of-month of start day if neither of them is given. The days are emitted in order, and then
+ * the cursor jumps {@code interval} months in one step, and straight over the months excluded by BYMONTH, by the
+ * months of year which the interval reaches from the start month, which repeat every {@code 12 / gcd(interval, 12)}
+ * intervals.
+ */
 class MonthlyRecurrenceGenerator implements RecurrenceGenerator {
 	private int interval;
-	private LocalDate dateCursor;
+	private long dayCursor;
+	private long startMonths;// the months since year 0 of the start month
+	private long monthCursor;// the months since year 0 of current recurrent month, i.e. year * 12 + month - 1
+	private int period;// the number of intervals in which the months of year repeat
+	private int reachableMonths;// the recurrent months by BYMONTH as bits, i.e. bit k is set for k intervals after start
+	private long firstDayOfMonth;// the epoch day of the first day of current recurrent month
+	private int daysOfMonth;// the candidate days of current recurrent month as bits, i.e. bit 1 is set for the 1st
+	private int startDayOfMonth;
+	private int maxCursorMoves = DEFAULT_MAX_CURSOR_MOVES;
+	private final long untilDay;
+	private final CompiledRecurrenceRule rule;
 	private DayOfWeekValidator weekDayValidator;
 	private DayOfMonthValidator dayOfMonthValidator;
 	private MonthValidator monthValidator;
 
-	MonthlyRecurrenceGenerator(LocalDate startDate, RecurrenceRule rule) {
-		this.dateCursor = startDate;
+	MonthlyRecurrenceGenerator(CompiledRecurrenceRule rule) {
+		this.rule = rule;
+		this.untilDay = rule.getUntilEpochDay();
 		this.interval = rule.getInterval();
 		this.weekDayValidator = rule.getDayOfWeekValidator();
 		this.monthValidator = rule.getMonthValidator();
 		this.dayOfMonthValidator = rule.getDayOfMonthValidator();
 	}
 
-	public LocalDate next() {
-		while (!isValid()) {
-			moveCursor();
+	public long nextEpochDay() {
+		if (reachableMonths == 0) {
+			return NO_MORE;// the interval never reaches any month of BYMONTH
 		}
-		LocalDate generatedDate = dateCursor;
-		moveCursor();
-		return generatedDate;
-	}
-
-	private void moveCursor() {
-
-		if (dayOfMonthValidator == null && weekDayValidator == null) {
-			// if none of verifier then simply jump by interval until the day-of-month are
-			// matched
-			int dayOfMonth = dateCursor.getDayOfMonth();
-			int numOfMonth = interval;
-			LocalDate validDate;
-			do {
-				validDate = dateCursor.plusMonths(numOfMonth);
-				numOfMonth += interval;
-			} while (dayOfMonth != validDate.getDayOfMonth());
-			dateCursor = validDate;
-			return;
+		int moves = 0;
+		while (true) {
+			int fromDayOfMonth = (int) (dayCursor - firstDayOfMonth) + 1;
+			// -1 << 32 would keep all the days, the cursor is after the month then
+			int days = fromDayOfMonth > 31 ? 0 : daysOfMonth & (-1 << fromDayOfMonth);
+			if (days != 0) {
+				long generatedDay = firstDayOfMonth + Integer.numberOfTrailingZeros(days) - 1;
+				dayCursor = generatedDay + 1;
+				return generatedDay;
+			}
+			moveToMonth(monthCursor + interval);
+			dayCursor = firstDayOfMonth;
+			if (dayCursor > untilDay) {
+				return NO_MORE;
+			}
+			if (++moves > maxCursorMoves) {
+				throw InfiniteLoopException.of(rule, dayCursor, moves);
+			}
 		}
+	}
 
-		if (!isMonthValid() || isLastDayOfMonth()) {
-			// Jump by interval and adjust to the first date of the month
-			dateCursor = dateCursor.plusMonths(interval);
-			dateCursor = dateCursor.with(TemporalAdjusters.firstDayOfMonth());
-			return;
+	/**
+	 * move to the month, or to the first recurrent month after it in BYMONTH, and build its candidate days.
+	 * @param months the months since year 0 of a recurrent month
+	 */
+	private void moveToMonth(long months) {
+		if (monthValidator != null && reachableMonths != 0) {
+			// rotate the reachable months to the current one, and jump to the next of them
+			int intervals = (int) Math.floorMod((months - startMonths) / interval, period);
+			int rotated = reachableMonths >>> intervals | reachableMonths << (period - intervals);
+			months += (long) Integer.numberOfTrailingZeros(rotated) * interval;
 		}
-
-		if (this.dayOfMonthValidator != null) {
-			dateCursor = dayOfMonthValidator.nextClosestValidDate(dateCursor);
-			return;
+		this.monthCursor = months;
+		int year = (int) Math.floorDiv(months, EpochDays.MONTHS_PER_YEAR);
+		int month = monthOfYear(months);
+		int lengthOfMonth = EpochDays.lengthOfMonth(year, month);
+		this.firstDayOfMonth = EpochDays.of(year, month, 1);
+		if (reachableMonths == 0) {
+			this.daysOfMonth = 0;// never recurs
+		} else if (dayOfMonthValidator == null && weekDayValidator == null) {
+			// only the day-of-month of start day is recurrent, if the month has it
+			this.daysOfMonth = startDayOfMonth <= lengthOfMonth ? 1 << startDayOfMonth : 0;
 		} else {
-			dateCursor = dateCursor.plusDays(1);
+			this.daysOfMonth = rule.daysOfMonth(EpochDays.dayOfWeek(firstDayOfMonth), lengthOfMonth);
 		}
 	}
 
-	private boolean isValid() {
-		return isMonthValid() && isMonthDayValid() && isDayOfWeekValid();
-	}
-
-	private boolean isDayOfWeekValid() {
-		return this.weekDayValidator == null || this.weekDayValidator.isValid(dateCursor);
+	private static int monthOfYear(long months) {
+		return (int) Math.floorMod(months, EpochDays.MONTHS_PER_YEAR) + 1;
 	}
 
-	private boolean isMonthValid() {
-		return monthValidator == null || monthValidator.isValid(dateCursor);
-	}
-
-	private boolean isMonthDayValid() {
-		return this.dayOfMonthValidator == null || this.dayOfMonthValidator.isValid(dateCursor);
+	public void setInterval(int interval) {
+		this.interval = interval;
 	}
 
-	private boolean isLastDayOfMonth() {
-		int lastDayOfMonth = dateCursor.with(TemporalAdjusters.lastDayOfMonth()).getDayOfMonth();
-		return dateCursor.getDayOfMonth() == lastDayOfMonth;
+	@Override
+	public void setMaxCursorMoves(int maxCursorMoves) {
+		this.maxCursorMoves = maxCursorMoves;
 	}
 
-	public void setInterval(int interval) {
-		this.interval = interval;
+	@Override
+	public void setStartEpochDay(long startEpochDay) {
+		int startDate = EpochDays.yearMonthDay(startEpochDay);
+		this.startDayOfMonth = EpochDays.dayOfMonth(startDate);
+		this.startMonths = EpochDays.months(startDate);
+		this.period = EpochDays.MONTHS_PER_YEAR / RecurrenceLattice.gcd(interval, EpochDays.MONTHS_PER_YEAR);
+		int months = 0;
+		for (int i = 0; i < period; i++) {
+			if (monthValidator == null || monthValidator.isValidMonth(monthOfYear(startMonths + (long) i * interval))) {
+				months |= 1 << i;
+			}
+		}
+		this.reachableMonths = months;
+		moveToMonth(startMonths);
+		this.dayCursor = Math.max(startEpochDay, firstDayOfMonth);
 	}
 
 	@Override
-	public void setStartDate(LocalDate startDate) {
-		this.dateCursor = startDate;
+	public void seek(long fromEpochDay) {
+		long fromMonths = EpochDays.months(EpochDays.yearMonthDay(fromEpochDay));
+		long intervals = (fromMonths - startMonths + interval - 1) / interval;
+		moveToMonth(startMonths + intervals * interval);
+		// the first day of next recurrent month, unless the month of fromEpochDay is recurrent
+		this.dayCursor = Math.max(fromEpochDay, firstDayOfMonth);
 	}
 }
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * A single-pass scanner of the iCalendar recurrence rule, e.g. {@code RRULE:FREQ=WEEKLY;BYDAY=MO,WE}.
+ * <p>The rule is read char by char without regular expressions or intermediate strings: the names of rule parts
+ * are packed into a {@code long} to be compared, and the values are parsed straight into the bits of the
+ * validators. A string is created only for the message of {@link RRuleException}.</p>
+ * <p>As before, the white spaces are ignored anywhere, the names and values are case-insensitive, the unknown
+ * rule parts are skipped, and empty rule parts (e.g. a trailing {@code ;}) are allowed.</p>
+ */
+final class RRuleParser {
+	private static final int END = -1;
+	private static final String PREFIX = "RRULE:";
+	private static final String WEEK_DAYS = "MOTUWETHFRSASU";// from Monday to Sunday
+	private static final String UNTIL_PATTERN = "yyyyMMdd'T'Hmmss'Z'";
+	private static final int MAX_ORDINAL_WEEK = 53;
+
+	private static final long FREQ = key("FREQ");
+	private static final long UNTIL = key("UNTIL");
+	private static final long COUNT = key("COUNT");
+	private static final long INTERVAL = key("INTERVAL");
+	private static final long BYDAY = key("BYDAY");
+	private static final long BYMONTH = key("BYMONTH");
+	private static final long BYMONTHDAY = key("BYMONTHDAY");
+	private static final Frequency[] FREQUENCIES = Frequency.values();
+	private static final long[] FREQUENCY_KEYS = new long[FREQUENCIES.length];
+	static {
+		for (int i = 0; i < FREQUENCIES.length; i++) {
+			FREQUENCY_KEYS[i] = key(FREQUENCIES[i].name());
+		}
+	}
+
+	private final CharSequence rule;
+	private final int end;
+	private int pos;
+
+	private RRuleParser(CharSequence rule, int from, int to) {
+		this.rule = rule;
+		this.pos = from;
+		this.end = to;
+	}
+
+	static RecurrenceRule parse(CharSequence icalString) {
+		return new RRuleParser(icalString, 0, icalString.length()).rule();
+	}
+
+	/**
+	 * parses the US-ASCII rule from the position to the limit of buffer, the position is not changed.
+	 */
+	static RecurrenceRule parse(ByteBuffer icalBytes) {
+		return parse(new AsciiSequence(icalBytes));
+	}
+
+	/**
+	 * @return the months as bits, i.e. bit 1 is set for January
+	 */
+	static int parseMonths(CharSequence value) {
+		return new RRuleParser(value, 0, value.length()).months();
+	}
+
+	/**
+	 * @return the positive days as bits in the low 32 bits, and the negative days as bits in the high 32
+	 *         bits, i.e. bit 1 is set for the 1st, and bit 33 is set for the last day of month
+	 */
+	static long parseDaysOfMonth(CharSequence value) {
+		return new RRuleParser(value, 0, value.length()).daysOfMonth();
+	}
+
+	/**
+	 * @return the days of week, each one is {@code (ordinal << 3) | dayOfWeek}, the ordinal is 0 for every
+	 *         day of week, e.g. {@code MO}, and the day of week is from 1 (Monday) to 7 (Sunday)
+	 */
+	static int[] parseDaysOfWeek(CharSequence value) {
+		return new RRuleParser(value, 0, value.length()).daysOfWeek();
+	}
+
+	private RecurrenceRule rule() {
+		for (int i = 0; i < PREFIX.length(); i++) {
+			if (upperCase(peek()) != PREFIX.charAt(i)) {
+				throw new RRuleException("The rule is not valid:" + rule);
+			}
+			pos++;
+		}
+		RecurrenceRule rrule = new RecurrenceRule();
+		for (int c = peek(); c != END; c = peek()) {
+			if (c == ';') {
+				pos++;// empty rule part
+				continue;
+			}
+			long name = name();
+			if (FREQ == name) {
+				rrule.setFreq(frequency());
+			} else if (COUNT == name) {
+				rrule.setCount(positiveInteger("count"));
+			} else if (INTERVAL == name) {
+				rrule.setInterval(positiveInteger("interval"));
+			} else if (UNTIL == name) {
+				rrule.setUntil(until());
+			} else if (BYDAY == name) {
+				rrule.setDayOfWeekValidator(new DayOfWeekValidator(daysOfWeek()));
+			} else if (BYMONTH == name) {
+				rrule.setMonthValidator(new MonthValidator(months()));
+			} else if (BYMONTHDAY == name) {
+				rrule.setDayOfMonthValidator(new DayOfMonthValidator(daysOfMonth()));
+			} else {
+				skipValue();
+			}
+		}
+		if (rrule.getFreq() == null) {
+			throw new RRuleException("The recurrent frequency must be specified:\n" + rule);
+		}
+		if (!CompiledRecurrenceRule.isSatisfiable(rrule.getMonthValidator(), rrule.getDayOfMonthValidator(),
+				rrule.getDayOfWeekValidator())) {
+			throw new RRuleException(CompiledRecurrenceRule.NEVER_RECURS + rule);
+		}
+		return rrule;
+	}
+
+	/**
+	 * reads the name of rule part and the following {@code =}.
+	 * @return the name packed by {@link #key(CharSequence)}, or 0 if it is not a known name
+	 */
+	private long name() {
+		long name = 0;
+		int length = 0;
+		boolean letters = true;
+		int c;
+		for (c = peek(); isNameChar(c); c = peek()) {
+			pos++;
+			letters &= isLetter(c);
+			name = (name << 5) | (upperCase(c) & 0x1f);
+			length++;
+		}
+		if (c != '=' || length == 0) {
+			throw new RRuleException("The rule is not valid:" + rule);
+		}
+		pos++;
+		return letters && length <= 12 ? name : 0;
+	}
+
+	private Frequency frequency() {
+		int from = pos;
+		long value = 0;
+		int c;
+		for (c = peek(); isLetter(c) && value < 1L << 55; c = peek()) {
+			pos++;
+			value = (value << 5) | (upperCase(c) & 0x1f);
+		}
+		if (isTerminator(c)) {
+			for (int i = 0; i < FREQUENCY_KEYS.length; i++) {
+				if (FREQUENCY_KEYS[i] == value) {
+					pos++;
+					return FREQUENCIES[i];
+				}
+			}
+		}
+		throw new RRuleException("The recurrent frequency[" + text(from, skipValue()) + "] is invalid, it only support "
+				+ Arrays.asList(FREQUENCIES) + ":\n" + rule);
+	}
+
+	/**
+	 * reads the value of COUNT or INTERVAL, which is a positive integer without any sign.
+	 */
+	private int positiveInteger(String name) {
+		int from = pos;
+		int value = number(Integer.MAX_VALUE);
+		if (value < 1 || !isTerminator(peek())) {
+			throw new RRuleException("Invalid " + name + ":" + text(from, skipValue()));
+		}
+		pos++;
+		return value;
+	}
+
+	private Date until() {
+		int from = pos;
+		int date = digits(8);
+		int time = -1;
+		if (date >= 0 && upperCase(peek()) == 'T') {
+			pos++;
+			time = digits(6);
+		}
+		if (time >= 0 && upperCase(peek()) == 'Z') {
+			pos++;
+			if (isTerminator(peek())) {
+				try {
+					LocalDateTime until = LocalDateTime.of(date / 10000, date / 100 % 100, date % 100, time / 10000,
+							time / 100 % 100, time % 100);
+					pos++;
+					return Date.from(until.atZone(ZoneId.systemDefault()).toInstant());
+				} catch (DateTimeException e) {
+					// not a valid date or time, e.g. 20190230T000000Z
+				}
+			}
+		}
+		throw new RRuleException("The recurence until date[" + text(from, skipValue())
+				+ "] is not valid, it does not follow the pattern of \"" + UNTIL_PATTERN + "\"");
+	}
+
+	private int months() {
+		int from = pos;
+		int months = 0;
+		int delimiter;
+		do {
+			int month = sign() == 0 ? number(12) : -1;
+			if (month < 1) {
+				throw new RRuleException("Invalid month:" + text(from, skipValue()));
+			}
+			months |= 1 << month;
+			delimiter = delimiter();
+		} while (delimiter == ',');
+		if (delimiter != ';') {
+			throw new RRuleException("Invalid month:" + text(from, skipValue()));
+		}
+		return months;
+	}
+
+	private long daysOfMonth() {
+		int from = pos;
+		long days = 0;
+		int delimiter;
+		do {
+			boolean negative = sign() < 0;
+			int day = number(31);
+			if (day < 1) {
+				throw new RRuleException("Invalid day of month:" + text(from, skipValue()));
+			}
+			days |= 1L << (negative ? day + 32 : day);
+			delimiter = delimiter();
+		} while (delimiter == ',');
+		if (delimiter != ';') {
+			throw new RRuleException("Invalid day of month:" + text(from, skipValue()));
+		}
+		return days;
+	}
+
+	private int[] daysOfWeek() {
+		int from = pos;
+		int[] days = new int[8];
+		int size = 0;
+		int delimiter;
+		do {
+			int sign = sign();
+			boolean ordinalDay = sign != 0 || isDigit(peek());
+			int ordinal = ordinalDay ? number(MAX_ORDINAL_WEEK) : 0;
+			int dayOfWeek = ordinalDay && ordinal < 1 ? 0 : dayOfWeek();
+			if (dayOfWeek == 0) {
+				throw new RRuleException("Invalid day of week[" + text(from, skipValue()) + "]");
+			}
+			if (size == days.length) {
+				days = Arrays.copyOf(days, size * 2);
+			}
+			days[size++] = ((sign < 0 ? -ordinal : ordinal) << 3) | dayOfWeek;
+			delimiter = delimiter();
+		} while (delimiter == ',');
+		if (delimiter != ';') {
+			throw new RRuleException("Invalid day of week[" + text(from, skipValue()) + "]");
+		}
+		return Arrays.copyOf(days, size);
+	}
+
+	/**
+	 * @return the day of week from 1 (Monday) to 7 (Sunday), or 0 if it is not a two letters day of week
+	 */
+	private int dayOfWeek() {
+		int first = upperCase(peek());
+		if (!isLetter(first)) {
+			return 0;
+		}
+		pos++;
+		int second = upperCase(peek());
+		if (!isLetter(second)) {
+			return 0;
+		}
+		pos++;
+		for (int i = 0; i < WEEK_DAYS.length(); i += 2) {
+			if (WEEK_DAYS.charAt(i) == first && WEEK_DAYS.charAt(i + 1) == second) {
+				return i / 2 + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * consumes the delimiter after an item of the list value.
+	 * @return {@code ','} if there is another item, {@code ';'} if it is the end of value, or the unexpected
+	 *         char which is not consumed
+	 */
+	private int delimiter() {
+		int c = peek();
+		if (c == ',') {
+			pos++;
+			return c;
+		}
+		if (isTerminator(c)) {
+			pos++;
+			return ';';
+		}
+		return c;
+	}
+
+	/**
+	 * @return 1 for {@code +}, -1 for {@code -}, or 0 if there is no sign
+	 */
+	private int sign() {
+		int c = peek();
+		if (c == '+' || c == '-') {
+			pos++;
+			return c == '+' ? 1 : -1;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the unsigned decimal number, or -1 if there is no digit or it exceeds the maximum
+	 */
+	private int number(int maximum) {
+		int value = 0;
+		boolean found = false;
+		for (int c = peek(); isDigit(c); c = peek()) {
+			pos++;
+			int digit = c - '0';
+			if (value > (maximum - digit) / 10) {
+				return -1;
+			}
+			value = value * 10 + digit;
+			found = true;
+		}
+		return found ? value : -1;
+	}
+
+	/**
+	 * @return the number of exactly {@code length} digits, or -1 if there are not enough digits
+	 */
+	private int digits(int length) {
+		int value = 0;
+		for (int i = 0; i < length; i++) {
+			int c = peek();
+			if (!isDigit(c)) {
+				return -1;
+			}
+			pos++;
+			value = value * 10 + c - '0';
+		}
+		return value;
+	}
+
+	/**
+	 * skips to the end of the value, the {@code ;} is consumed.
+	 * @return the end of the value
+	 */
+	private int skipValue() {
+		while (pos < end && rule.charAt(pos) != ';') {
+			pos++;
+		}
+		int valueEnd = pos;
+		if (pos < end) {
+			pos++;
+		}
+		return valueEnd;
+	}
+
+	/**
+	 * skips the white spaces.
+	 * @return the next char, or {@link #END} if there is no more char
+	 */
+	private int peek() {
+		while (pos < end) {
+			char c = rule.charAt(pos);
+			if (!Character.isWhitespace(c)) {
+				return c;
+			}
+			pos++;
+		}
+		return END;
+	}
+
+	/**
+	 * @return the chars between {@code from} and {@code to} without white spaces, for the exception message
+	 */
+	private String text(int from, int to) {
+		StringBuilder text = new StringBuilder(to - from);
+		for (int i = from; i < to; i++) {
+			char c = rule.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				text.append(c);
+			}
+		}
+		return text.toString();
+	}
+
+	private static boolean isTerminator(int c) {
+		return c == ';' || c == END;
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLetter(int c) {
+		return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z';
+	}
+
+	private static boolean isNameChar(int c) {
+		return isLetter(c) || isDigit(c) || c == '-' || c == '_';
+	}
+
+	private static int upperCase(int c) {
+		return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c;
+	}
+
+	/**
+	 * packs the name of up to 12 letters, 5 bits per letter.
+	 */
+	private static long key(CharSequence name) {
+		long key = 0;
+		for (int i = 0; i < name.length(); i++) {
+			key = (key << 5) | (upperCase(name.charAt(i)) & 0x1f);
+		}
+		return key;
+	}
+
+	/**
+	 * the US-ASCII bytes of buffer as chars, from the position to the limit when it is created.
+	 */
+	private static final class AsciiSequence implements CharSequence {
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int length;
+
+		AsciiSequence(ByteBuffer buffer) {
+			this.buffer = buffer;
+			this.offset = buffer.position();
+			this.length = buffer.remaining();
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (buffer.get(offset + index) & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(offset + i);
+			}
+			return new String(bytes, StandardCharsets.US_ASCII);
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The agenda of many recurrences, which iterates the epoch days of their recurrent dates merged in ascending order,
+ * and tags each of them with the series id, i.e. the index of its calendar.
+ * <p>The next recurrent date of each calendar is kept in a min-heap of primitive arrays, ordered by the epoch day and
+ * then by the series id. Only the calendar of the consumed date is advanced, when the next date is asked for, so the
+ * memory is in proportion to the number of calendars rather than the number of recurrent dates.</p>
+ * <p>It ends after {@link #setLimit(long) limit} dates, or at the {@link #setUntil(LocalDate) until} date, whichever
+ * is earlier. A calendar is never advanced after the until date, and a calendar which has no more recurrent date,
+ * i.e. {@link RecurrenceCalendar#hasNext()} is false, is dropped from the agenda. If no recurrent date of a calendar is
+ * found within its maximum number of cursor moves, the {@link InfiniteLoopException} is thrown by the agenda as by
+ * {@link RecurrenceCalendar#next()}. The calendars are iterated by the agenda, it must not be used by multiple
+ * threads.</p>
+ */
+public class RecurrenceAgenda implements PrimitiveIterator.OfLong {
+	private final RecurrenceCalendar[] calendars;
+	private final long[] heapDays;// the next epoch days of the calendars in the heap
+	private final int[] heapSeries;// the series ids of heapDays
+	private int heapSize;
+	private int offered;// the number of calendars whose first date is offered to the heap
+	private int consumed = -1;// the series id of the last date, which calendar is not advanced yet
+	private int seriesId = -1;
+	private long limit = Long.MAX_VALUE;
+	private long until = Long.MAX_VALUE;
+
+	private RecurrenceAgenda(RecurrenceCalendar[] calendars) {
+		this.calendars = calendars;
+		this.heapDays = new long[calendars.length];
+		this.heapSeries = new int[calendars.length];
+	}
+
+	/**
+	 * To create an agenda of the calendars, the series id of each recurrent date is the index of its calendar.
+	 * @param calendars the calendars of the recurrences
+	 * @return an instance of RecurrenceAgenda
+	 */
+	public static RecurrenceAgenda getInstance(RecurrenceCalendar... calendars) {
+		return new RecurrenceAgenda(calendars.clone());
+	}
+
+	/**
+	 * the same as {@link #getInstance(RecurrenceCalendar...)} but the calendars are in a list.
+	 * @param calendars the calendars of the recurrences
+	 * @return an instance of RecurrenceAgenda
+	 */
+	public static RecurrenceAgenda getInstance(List<RecurrenceCalendar> calendars) {
+		return new RecurrenceAgenda(calendars.toArray(new RecurrenceCalendar[0]));
+	}
+
+	/**
+	 * Limits the number of the dates of the agenda.
+	 * @param limit the maximum number of dates to iterate
+	 */
+	public void setLimit(long limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Ends the agenda at the date, the calendars are not advanced after it.
+	 * @param untilLocalDate the last date of the agenda, inclusive
+	 */
+	public void setUntil(LocalDate untilLocalDate) {
+		setUntilEpochDay(untilLocalDate.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #setUntil(LocalDate)} but the date is given as epoch day.
+	 * @param untilEpochDay the epoch day of the last date of the agenda, inclusive
+	 */
+	public void setUntilEpochDay(long untilEpochDay) {
+		this.until = untilEpochDay;
+	}
+
+	/**
+	 * @return {@code true} if the agenda has more recurrent dates
+	 * @throws InfiniteLoopException if no more recurrent date of a calendar is found within its maximum number of
+	 *             cursor moves
+	 */
+	@Override
+	public boolean hasNext() {
+		if (limit <= 0) {
+			return false;
+		}
+		if (offered < calendars.length) {
+			for (; offered < calendars.length; offered++) {
+				offer(offered);
+			}
+		} else if (consumed >= 0) {
+			// advance the calendar of the last date only
+			offer(consumed);
+			consumed = -1;
+		}
+		return heapSize > 0;
+	}
+
+	/**
+	 * Returns the epoch day of the next recurrent date of the agenda, its series id is {@link #seriesId()}.
+	 * @return the epoch day of the next recurrent date
+	 * @throws NoSuchElementException if it has no more recurrent dates
+	 */
+	@Override
+	public long nextLong() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more recurrence!");
+		}
+		long epochDay = heapDays[0];
+		seriesId = heapSeries[0];
+		consumed = seriesId;
+		limit--;
+		heapSize--;
+		if (heapSize > 0) {
+			siftDown(heapDays[heapSize], heapSeries[heapSize]);
+		}
+		return epochDay;
+	}
+
+	/**
+	 * the same as {@link #nextLong()}, but returns the recurrent date.
+	 * @return the next recurrent date
+	 * @throws NoSuchElementException if it has no more recurrent dates
+	 */
+	public LocalDate nextDate() {
+		return LocalDate.ofEpochDay(nextLong());
+	}
+
+	/**
+	 * @return the series id of the last recurrent date, i.e. the index of its calendar, or -1 before the first one
+	 */
+	public int seriesId() {
+		return seriesId;
+	}
+
+	/**
+	 * to add the next recurrent date of the calendar into the heap, unless it is after the agenda. The calendar is
+	 * not advanced after the agenda, and it is dropped if it has no more recurrent date.
+	 */
+	private void offer(int series) {
+		RecurrenceCalendar calendar = calendars[series];
+		if (!calendar.hasNext(until)) {
+			return;
+		}
+		long epochDay = calendar.nextEpochDay();
+		// sift up
+		int index = heapSize++;
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isBefore(epochDay, series, heapDays[parent], heapSeries[parent])) {
+				break;
+			}
+			heapDays[index] = heapDays[parent];
+			heapSeries[index] = heapSeries[parent];
+			index = parent;
+		}
+		heapDays[index] = epochDay;
+		heapSeries[index] = series;
+	}
+
+	/**
+	 * to put the entry at the root, and move it down to its place.
+	 */
+	private void siftDown(long epochDay, int series) {
+		int index = 0;
+		int half = heapSize >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < heapSize && isBefore(heapDays[right], heapSeries[right], heapDays[child], heapSeries[child])) {
+				child = right;
+			}
+			if (!isBefore(heapDays[child], heapSeries[child], epochDay, series)) {
+				break;
+			}
+			heapDays[index] = heapDays[child];
+			heapSeries[index] = heapSeries[child];
+			index = child;
+		}
+		heapDays[index] = epochDay;
+		heapSeries[index] = series;
+	}
+
+	private static boolean isBefore(long epochDay, int series, long otherEpochDay, int otherSeries) {
+		return epochDay < otherEpochDay || epochDay == otherEpochDay && series < otherSeries;
+	}
+}
@@ -16,9 +16,16 @@
 package org.calendar.recurrence;
 
 import java.time.LocalDate;
-import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 /**
  * 
  * It is used to get the recurrence date base on the {@link RecurrenceRule}
@@ -29,14 +36,23 @@ import java.util.Optional;
  *
  */
 public class RecurrenceCalendar {
-	private RecurrenceRule rule;
+	/** the last epoch day of {@link #lastEpochDays(CompiledRecurrenceRule[], long[])} if the rule is not bounded */
+	public static final long UNBOUNDED = Long.MAX_VALUE;
+	/** the last epoch day of {@link #lastEpochDays(CompiledRecurrenceRule[], long[])} if the rule never recurs */
+	public static final long NO_OCCURRENCE = Long.MIN_VALUE;
+	private static final int PENDING_BATCH = 32;
+	private CompiledRecurrenceRule rule;
+	private long start;
 	private int cursor;
-	private LocalDate next;
-	private LocalDate dateCursor;
-	private LocalDate end;
+	private long next;
+	private long fromDay;// the first day from which the next recurrent date is generated
+	private long pendingUntil;// the last day of the pending recurrent dates
+	private long pending;// the number of recurrent dates from fromDay until pendingUntil, which are known by the lattice
+	private long end = Long.MAX_VALUE;
 	private boolean generated;
 	private RecurrenceGenerator generator;
-	private InfiniteLoopDetector infiniteLoopDetector = InfiniteLoopDetector.create(1000, 10000);
+	private RecurrenceLattice lattice;// created on demand for the start date
+	private int maxCursorMoves = RecurrenceGenerator.DEFAULT_MAX_CURSOR_MOVES;
 	
 	/**
 	 * To create an instance of RecurrenceCalendar base on iCalendar string rules and specify the recurrence start date.
@@ -58,56 +74,463 @@ public class RecurrenceCalendar {
 	 * @return an instance of RecurrenceCalendar 
 	 */
 	public static RecurrenceCalendar getInstance(LocalDate startLocalDate, RecurrenceRule rule) {
+		return getInstance(startLocalDate, rule.compile());
+	}
+
+	/**
+	 * To create an instance of RecurrenceCalendar base on the instance of {@link CompiledRecurrenceRule} and specify the recurrence start date.
+	 * <p>The compiled rule may be shared by the instances in any threads, while each instance is used by one thread only.</p>
+	 * @param startLocalDate the recurrence start date
+	 * @param rule an instance of CompiledRecurrenceRule
+	 * @return an instance of RecurrenceCalendar 
+	 */
+	public static RecurrenceCalendar getInstance(LocalDate startLocalDate, CompiledRecurrenceRule rule) {
 		RecurrenceCalendar instance = new RecurrenceCalendar();
 		instance.rule = rule;
-		instance.dateCursor = startLocalDate;
-		instance.end = Optional.ofNullable(rule.getUntil())
-				.map(until -> until.toInstant().atZone(ZoneId.systemDefault()).toLocalDate()).orElse(null);
-		switch (rule.getFreq()) {
-		case DAILY:
-			instance.generator = new DailyRecurrenceGenerator(rule);
-			break;
-		case WEEKLY:
-			instance.generator =new WeeklyRecurrenceGenerator(rule);
-			break;
-		default:
-			MonthlyRecurrenceGenerator monthlyGenerator = new MonthlyRecurrenceGenerator(instance.dateCursor, rule);
-			instance.generator = monthlyGenerator;
-			break;
-		}
-		instance.generator.setInterval(rule.getInterval());
-		instance.generator.setStartDate(startLocalDate);
+		instance.end = rule.getUntilEpochDay();
+		instance.generator = rule.newGenerator();
+		instance.reset(startLocalDate);
+		return instance;
+	}
+
+	/**
+	 * To create an instance of RecurrenceCalendar base on iCalendar string rules and specify the recurrence start date,
+	 * which skips the recurrent dates before {@code fromLocalDate}.
+	 * @param startLocalDate the recurrence start date
+	 * @param icalString the rules of recurrence
+	 * @param fromLocalDate the date of the first recurrence to iterate from
+	 * @return an instance of RecurrenceCalendar
+	 * @see #seek(LocalDate)
+	 */
+	public static RecurrenceCalendar getInstance(LocalDate startLocalDate, String icalString, LocalDate fromLocalDate) {
+		RecurrenceRule rule = RecurrenceRule.getInstance(icalString);
+		return getInstance(startLocalDate, rule, fromLocalDate);
+	}
+
+	/**
+	 * To create an instance of RecurrenceCalendar base on the instance of {@link RecurrenceRule} and specify the recurrence start date,
+	 * which skips the recurrent dates before {@code fromLocalDate}.
+	 * @param startLocalDate the recurrence start date
+	 * @param rule an instance of RecurrenceRule
+	 * @param fromLocalDate the date of the first recurrence to iterate from
+	 * @return an instance of RecurrenceCalendar
+	 * @see #seek(LocalDate)
+	 */
+	public static RecurrenceCalendar getInstance(LocalDate startLocalDate, RecurrenceRule rule, LocalDate fromLocalDate) {
+		return getInstance(startLocalDate, rule.compile(), fromLocalDate);
+	}
+
+	/**
+	 * To create an instance of RecurrenceCalendar base on the instance of {@link CompiledRecurrenceRule} and specify the recurrence start date,
+	 * which skips the recurrent dates before {@code fromLocalDate}.
+	 * @param startLocalDate the recurrence start date
+	 * @param rule an instance of CompiledRecurrenceRule
+	 * @param fromLocalDate the date of the first recurrence to iterate from
+	 * @return an instance of RecurrenceCalendar
+	 * @see #seek(LocalDate)
+	 */
+	public static RecurrenceCalendar getInstance(LocalDate startLocalDate, CompiledRecurrenceRule rule, LocalDate fromLocalDate) {
+		RecurrenceCalendar instance = getInstance(startLocalDate, rule);
+		instance.seek(fromLocalDate);
 		return instance;
 	}
+
+	/**
+	 * Restarts the recurrence from another start date, so that one instance can be reused for many
+	 * series of the same rule.
+	 * @param startLocalDate the recurrence start date
+	 */
+	public void reset(LocalDate startLocalDate) {
+		reset(startLocalDate.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #reset(LocalDate)} but the start date is given as epoch day.
+	 * @param startEpochDay the epoch day of the recurrence start date
+	 * @see LocalDate#toEpochDay()
+	 */
+	public void reset(long startEpochDay) {
+		this.start = startEpochDay;
+		this.fromDay = startEpochDay;
+		this.pending = 0;
+		this.generator.setStartEpochDay(startEpochDay);
+		this.lattice = null;
+		this.cursor = 0;
+		this.generated = false;
+	}
+
+	/**
+	 * Skips ahead, so that the next recurrent date is the first one on or after {@code fromLocalDate}.
+	 * <p>The generator jumps to the interval-aligned period of {@code fromLocalDate} directly instead of
+	 * iterating the recurrent dates since the start date. If the rule is bounded by COUNT, the skipped
+	 * recurrent dates are still counted by the interval lattice, so that the recurrence ends at the same date.</p>
+	 * <p>It may also move backward, the recurrent dates before the start date are never iterated.</p>
+	 * @param fromLocalDate the date to iterate from
+	 */
+	public void seek(LocalDate fromLocalDate) {
+		seek(fromLocalDate.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #seek(LocalDate)} but the date is given as epoch day.
+	 * @param fromEpochDay the epoch day of the date to iterate from
+	 */
+	public void seek(long fromEpochDay) {
+		reset(start);
+		if (fromEpochDay <= start) {
+			return;
+		}
+		if (rule.getCount() > 0) {
+			// the skipped recurrences are counted by the lattice month by month, instead of being iterated
+			cursor = (int) lattice().countBefore(fromEpochDay, rule.getCount());
+			if (isCountExceeded()) {
+				return;
+			}
+		}
+		generator.seek(fromEpochDay);
+		this.fromDay = fromEpochDay;
+		this.pending = 0;
+	}
 	
+	/**
+	 * Checks if the date is one of the recurrent dates, without iterating the recurrence or changing its state.
+	 * <p>The date is checked against the interval lattice of the frequency and the BY rule parts directly. If the rule
+	 * is bounded by COUNT, the recurrent dates before it are counted month by month, instead of day by day.</p>
+	 * @param date the date to check
+	 * @return true if the recurrence occurs on the date
+	 */
+	public boolean isOccurrence(LocalDate date) {
+		return isOccurrence(date.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #isOccurrence(LocalDate)} but the date is given as epoch day.
+	 * @param epochDay the epoch day of the date to check
+	 * @return true if the recurrence occurs on the date
+	 */
+	public boolean isOccurrence(long epochDay) {
+		if (epochDay > end || !lattice().contains(epochDay)) {
+			return false;
+		}
+		return rule.getCount() <= 0 || lattice().countBefore(epochDay, rule.getCount()) < rule.getCount();
+	}
+
+	/**
+	 * Returns the recurrent date by its index, without iterating the recurrence or changing its state.
+	 * <p>The recurrent dates of each month are counted at once, and the periods of whole 400-year cycles in
+	 * which the recurrence repeats are skipped by multiplication, so it does not take {@code index} steps.</p>
+	 * @param index the index of the recurrent date, 0 for the first one
+	 * @return the recurrent date
+	 * @throws NoSuchElementException if the recurrence has no more than {@code index} recurrent dates
+	 * @see #indexOf(LocalDate)
+	 */
+	public LocalDate occurrenceAt(long index) {
+		return LocalDate.ofEpochDay(epochDayAt(index));
+	}
+
+	/**
+	 * the same as {@link #occurrenceAt(long)} but returns the epoch day of the recurrent date.
+	 * @param index the index of the recurrent date, 0 for the first one
+	 * @return the epoch day of the recurrent date
+	 * @throws NoSuchElementException if the recurrence has no more than {@code index} recurrent dates
+	 */
+	public long epochDayAt(long index) {
+		if (index < 0 || (rule.getCount() > 0 && index >= rule.getCount())) {
+			throw new NoSuchElementException("No recurrence at " + index);
+		}
+		long epochDay = lattice().epochDayAt(index);
+		if (epochDay == RecurrenceLattice.NOT_FOUND || epochDay > end) {
+			throw new NoSuchElementException("No recurrence at " + index);
+		}
+		return epochDay;
+	}
+
+	/**
+	 * Returns the index of the recurrent date, i.e. the number of recurrent dates before it, without iterating the
+	 * recurrence or changing its state.
+	 * @param date the date to find
+	 * @return the index of the date, 0 for the first one, or -1 if it is not a recurrent date
+	 * @see #occurrenceAt(long)
+	 */
+	public long indexOf(LocalDate date) {
+		return indexOf(date.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #indexOf(LocalDate)} but the date is given as epoch day.
+	 * @param epochDay the epoch day of the date to find
+	 * @return the index of the date, 0 for the first one, or -1 if it is not a recurrent date
+	 */
+	public long indexOf(long epochDay) {
+		if (epochDay > end || !lattice().contains(epochDay)) {
+			return -1;
+		}
+		long limit = rule.getCount() > 0 ? rule.getCount() : Long.MAX_VALUE;
+		long index = lattice().countBefore(epochDay, limit);
+		return index < limit ? index : -1;
+	}
+
+	/**
+	 * Counts the recurrent dates within the window from {@code fromLocalDate} to {@code toLocalDate}, both inclusive,
+	 * without creating any date or changing the state of the recurrence.
+	 * <p>The recurrent dates of each month are counted at once, only the months at both edges of the window are
+	 * partial, and the periods of whole 400-year cycles in which the recurrence repeats are counted by multiplication.</p>
+	 * @param fromLocalDate the first date of the window
+	 * @param toLocalDate the last date of the window
+	 * @return the number of recurrent dates in the window
+	 * @see #between(LocalDate, LocalDate)
+	 */
+	public long countBetween(LocalDate fromLocalDate, LocalDate toLocalDate) {
+		return countBetween(fromLocalDate.toEpochDay(), toLocalDate.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #countBetween(LocalDate, LocalDate)} but the dates are given as epoch days.
+	 * @param fromEpochDay the epoch day of the first date of the window
+	 * @param toEpochDay the epoch day of the last date of the window, inclusive
+	 * @return the number of recurrent dates in the window
+	 */
+	public long countBetween(long fromEpochDay, long toEpochDay) {
+		long toExclusive = Math.min(toEpochDay, end) + 1;
+		if (toExclusive <= fromEpochDay) {
+			return 0;
+		}
+		if (rule.getCount() > 0) {
+			// the recurrent dates are counted from the start date to know which of them are within COUNT
+			return lattice().countBefore(toExclusive, rule.getCount())
+					- lattice().countBefore(fromEpochDay, rule.getCount());
+		}
+		return lattice().count(fromEpochDay, toExclusive, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the last recurrent date of the recurrence bounded by COUNT or UNTIL, without iterating the recurrence
+	 * or changing its state. It is found by {@link #occurrenceAt(long)} of the last index, which is COUNT or the
+	 * {@link #countBetween(LocalDate, LocalDate) count} of the recurrent dates until UNTIL.
+	 * @return the last recurrent date, or empty if the recurrence is not bounded, or it never recurs
+	 */
+	public Optional<LocalDate> lastOccurrence() {
+		long epochDay = lastEpochDay(rule, start, lattice());
+		if (epochDay == UNBOUNDED || epochDay == NO_OCCURRENCE) {
+			return Optional.empty();
+		}
+		return Optional.of(LocalDate.ofEpochDay(epochDay));
+	}
+
+	/**
+	 * Finds the first date on which both this and the other recurrence occur, without iterating either of them or
+	 * changing their states.
+	 * <p>The recurrent days of each month of both recurrences are intersected as bits, the months which either of
+	 * them skips by its interval are skipped, and if they do not occur on the same day in a whole period in which both
+	 * of them repeat, i.e. the least common multiple of their periods, they never do.</p>
+	 * @param other the other recurrence
+	 * @return the first common recurrent date, or empty if they never occur on the same date
+	 */
+	public Optional<LocalDate> firstConflict(RecurrenceCalendar other) {
+		List<LocalDate> conflicts = conflicts(other, Long.MIN_VALUE, Long.MAX_VALUE, 1);
+		return conflicts.isEmpty() ? Optional.empty() : Optional.of(conflicts.get(0));
+	}
+
+	/**
+	 * Finds the dates on which both this and the other recurrence occur within the window from {@code fromLocalDate}
+	 * to {@code toLocalDate}, both inclusive, in the same way as {@link #firstConflict(RecurrenceCalendar)}.
+	 * @param other the other recurrence
+	 * @param fromLocalDate the first date of the window
+	 * @param toLocalDate the last date of the window
+	 * @param limit the maximum number of dates to find
+	 * @return the first {@code limit} common recurrent dates in the window in ascending order
+	 */
+	public List<LocalDate> conflicts(RecurrenceCalendar other, LocalDate fromLocalDate, LocalDate toLocalDate,
+			int limit) {
+		return conflicts(other, fromLocalDate.toEpochDay(), toLocalDate.toEpochDay(), limit);
+	}
+
+	/**
+	 * the same as {@link #conflicts(RecurrenceCalendar, LocalDate, LocalDate, int)} but the dates are given as epoch
+	 * days.
+	 * @param other the other recurrence
+	 * @param fromEpochDay the epoch day of the first date of the window
+	 * @param toEpochDay the epoch day of the last date of the window, inclusive
+	 * @param limit the maximum number of dates to find
+	 * @return the first {@code limit} common recurrent dates in the window in ascending order
+	 */
+	public List<LocalDate> conflicts(RecurrenceCalendar other, long fromEpochDay, long toEpochDay, int limit) {
+		toEpochDay = Math.min(toEpochDay, Math.min(lastEpochDay(rule, start, lattice()),
+				lastEpochDay(other.rule, other.start, other.lattice())));
+		List<LocalDate> conflicts = new ArrayList<>();
+		for (long epochDay = fromEpochDay; conflicts.size() < limit; epochDay++) {
+			epochDay = lattice().nextCommonDay(other.lattice(), epochDay, toEpochDay);
+			if (epochDay == RecurrenceLattice.NOT_FOUND) {
+				break;
+			}
+			conflicts.add(LocalDate.ofEpochDay(epochDay));
+		}
+		return conflicts;
+	}
+
+	/**
+	 * Counts the dates on which both this and the other recurrence occur within the window from {@code fromLocalDate}
+	 * to {@code toLocalDate}, both inclusive, without iterating either of them or changing their states.
+	 * <p>The recurrent days of each month of both recurrences are intersected as bits, and the periods in which both
+	 * of them repeat are counted by multiplication, in the same way as {@link #countBetween(LocalDate, LocalDate)}.</p>
+	 * @param other the other recurrence
+	 * @param fromLocalDate the first date of the window
+	 * @param toLocalDate the last date of the window
+	 * @return the number of common recurrent dates in the window
+	 */
+	public long countConflicts(RecurrenceCalendar other, LocalDate fromLocalDate, LocalDate toLocalDate) {
+		return countConflicts(other, fromLocalDate.toEpochDay(), toLocalDate.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #countConflicts(RecurrenceCalendar, LocalDate, LocalDate)} but the dates are given as epoch
+	 * days.
+	 * @param other the other recurrence
+	 * @param fromEpochDay the epoch day of the first date of the window
+	 * @param toEpochDay the epoch day of the last date of the window, inclusive
+	 * @return the number of common recurrent dates in the window
+	 */
+	public long countConflicts(RecurrenceCalendar other, long fromEpochDay, long toEpochDay) {
+		toEpochDay = Math.min(toEpochDay, Math.min(lastEpochDay(rule, start, lattice()),
+				lastEpochDay(other.rule, other.start, other.lattice())));
+		if (toEpochDay < fromEpochDay) {
+			return 0;
+		}
+		return lattice().countCommon(other.lattice(), fromEpochDay, toEpochDay + 1, Long.MAX_VALUE);
+	}
+
+	/**
+	 * The bulk form of {@link #lastOccurrence()}, which computes the last recurrent dates of many recurrences in
+	 * parallel, without creating any calendar.
+	 * @param rules the rules of the recurrences
+	 * @param startEpochDays the epoch days of the recurrence start dates, in the same order as {@code rules}
+	 * @return the epoch days of the last recurrent dates, in the same order as {@code rules}, or {@link #UNBOUNDED}
+	 *         if the rule is not bounded, or {@link #NO_OCCURRENCE} if it never recurs
+	 */
+	public static long[] lastEpochDays(CompiledRecurrenceRule[] rules, long[] startEpochDays) {
+		if (rules.length != startEpochDays.length) {
+			throw new IllegalArgumentException("The number of rules " + rules.length
+					+ " is not the same as the number of start dates " + startEpochDays.length);
+		}
+		long[] lastEpochDays = new long[rules.length];
+		IntStream.range(0, rules.length).parallel().forEach(i -> lastEpochDays[i] = lastEpochDay(rules[i],
+				startEpochDays[i], new RecurrenceLattice(rules[i], startEpochDays[i])));
+		return lastEpochDays;
+	}
+
+	/**
+	 * @return the epoch day of the last recurrent date, or {@link #UNBOUNDED} or {@link #NO_OCCURRENCE}
+	 */
+	static long lastEpochDay(CompiledRecurrenceRule rule, long startEpochDay, RecurrenceLattice lattice) {
+		long until = rule.getUntilEpochDay();
+		if (rule.getCount() <= 0 && until == Long.MAX_VALUE) {
+			return UNBOUNDED;
+		}
+		long limit = rule.getCount() > 0 ? rule.getCount() : Long.MAX_VALUE;
+		long index = until == Long.MAX_VALUE ? limit - 1 : lattice.countBefore(until + 1, limit) - 1;
+		if (index < 0) {
+			return NO_OCCURRENCE;
+		}
+		long epochDay = lattice.epochDayAt(index);
+		if (epochDay == RecurrenceLattice.NOT_FOUND) {
+			// fewer than COUNT, the recurrent dates are in the month of start date only
+			long nextMonth = EpochDays.plusMonths(EpochDays.firstDayOfMonth(startEpochDay), 1);
+			index = lattice.countBefore(nextMonth, limit) - 1;
+			epochDay = index < 0 ? NO_OCCURRENCE : lattice.epochDayAt(index);
+		}
+		return epochDay;
+	}
+
+	private RecurrenceLattice lattice() {
+		if (lattice == null) {
+			lattice = new RecurrenceLattice(rule, start);
+		}
+		return lattice;
+	}
+
 	/**
      * Returns {@code true} if it has more recurrent dates.
      * (In other words, returns {@code true} if {@link #next} would
      * return an {@code LocalDate} rather than throwing an exception.)
      *
      * @return {@code true} if it has more recurrent dates
+     * @throws InfiniteLoopException if no more recurrent date is found within the maximum number of cursor moves
+     * @see #setMaxCursorMoves(int)
      */
 	public boolean hasNext() {
-		infiniteLoopDetector.start();
+		return generate();
+	}
+
+	/**
+	 * the same as {@link #hasNext()}, but the recurrent dates after {@code untilEpochDay} are not generated. The
+	 * recurrent dates until then are counted by the lattice first, up to {@value #PENDING_BATCH} of them at once, so
+	 * that the generator is never moved after it.
+	 * @param untilEpochDay the epoch day of the last date to generate, inclusive
+	 * @return {@code true} if it has more recurrent dates on or before {@code untilEpochDay}
+	 */
+	boolean hasNext(long untilEpochDay) {
+		return hasNext(untilEpochDay, PENDING_BATCH);
+	}
+
+	/**
+	 * the same as {@link #hasNext(long)}, but counts up to {@code batch} recurrent dates at once, e.g. all of them in
+	 * a window which is iterated to its end.
+	 */
+	private boolean hasNext(long untilEpochDay, long batch) {
+		if (!generated && !isCountExceeded()) {
+			long until = Math.min(untilEpochDay, end);
+			if (until < fromDay) {
+				return false;
+			}
+			if (until != Long.MAX_VALUE && (pending == 0 || pendingUntil != until)) {
+				pendingUntil = until;
+				pending = lattice().count(fromDay, until + 1, batch);
+				if (pending == 0) {
+					return false;
+				}
+			}
+		}
+		return generate() && next <= untilEpochDay;
+	}
+
+	/**
+	 * to generate the next recurrent date if it is not generated yet.
+	 * @return true if there is a generated recurrent date
+	 */
+	private boolean generate() {
 		if (generated) {
 			return true;
 		}
 		if (isCountExceeded()) {
 			return false;
 		}
-		dateCursor = generator.next();
-		if (isExceededEndDate(dateCursor)) {
-			this.next = null;
+		long nextDay = generator.nextEpochDay();
+		if (nextDay > end || nextDay == RecurrenceGenerator.NO_MORE) {
 			return false;
 		} else {
-			this.next = dateCursor;
+			this.next = nextDay;
+			this.fromDay = nextDay + 1;
+			if (pending > 0) {
+				pending--;
+			}
 			cursor++;
 		}
 		this.generated = true;
-		infiniteLoopDetector.throwExcpetionIfDetected("Infinite loop detected!");
 		return true;
 	}
 
+	/**
+	 * Limits the number of cursor moves to find each recurrent date, {@value RecurrenceGenerator#DEFAULT_MAX_CURSOR_MOVES}
+	 * by default. When it is exceeded, an {@link InfiniteLoopException} is thrown with the rule and the cursor date.
+	 * <p>The limit is on the work of the generator rather than on the elapsed time, so that the result does not depend
+	 * on the speed of the machine.</p>
+	 * @param maxCursorMoves the maximum number of cursor moves for each recurrent date
+	 */
+	public void setMaxCursorMoves(int maxCursorMoves) {
+		this.maxCursorMoves = maxCursorMoves;
+		generator.setMaxCursorMoves(maxCursorMoves);
+	}
+
 	/**
 	 * Returns next recurrent LocalDate。
 	 * 
@@ -115,10 +538,19 @@ public class RecurrenceCalendar {
      * @throws NoSuchElementException if it has no more recurrent dates
      */
 	public LocalDate next() {
-		if (generated) {
-			this.generated = false;
-			return this.next;
-		} else if (this.hasNext()) {
+		return LocalDate.ofEpochDay(nextEpochDay());
+	}
+
+	/**
+	 * Returns the epoch day of next recurrent date, it is the same as {@link #next()} but without
+	 * creating any object.
+	 * 
+	 * @return the epoch day of next recurrent date
+	 * @throws NoSuchElementException if it has no more recurrent dates
+	 * @see LocalDate#ofEpochDay(long)
+	 */
+	public long nextEpochDay() {
+		if (generated || this.hasNext()) {
 			this.generated = false;
 			return this.next;
 		} else {
@@ -126,11 +558,106 @@ public class RecurrenceCalendar {
 		}
 	}
 
-	private boolean isCountExceeded() {
-		return rule.getCount() > 0 && cursor >= rule.getCount();
+	/**
+	 * Returns a view of the recurrent dates as epoch days, which shares the iteration state with
+	 * this calendar.
+	 * 
+	 * @return an iterator of the epoch days of recurrent dates
+	 */
+	public PrimitiveIterator.OfLong epochDayIterator() {
+		return new PrimitiveIterator.OfLong() {
+
+			@Override
+			public boolean hasNext() {
+				return RecurrenceCalendar.this.hasNext();
+			}
+
+			@Override
+			public long nextLong() {
+				return nextEpochDay();
+			}
+		};
 	}
 
-	private boolean isExceededEndDate(LocalDate date) {
-		return Optional.ofNullable(end).map(end -> date.isAfter(end)).orElse(false);
+	/**
+	 * Returns a sequential stream of all the recurrent dates from the start date, which does not share the iteration
+	 * state with this calendar.
+	 * <p>It is backed by {@link #spliterator()}, so that {@code parallel()} splits the recurrence by the range of
+	 * days, and the recurrent dates of each split are generated from the first day of its range.</p>
+	 * @return the stream of the recurrent dates in ascending order
+	 */
+	public Stream<LocalDate> stream() {
+		return epochDayStream().mapToObj(LocalDate::ofEpochDay);
+	}
+
+	/**
+	 * the same as {@link #stream()} but of the epoch days of the recurrent dates.
+	 * @return the stream of the epoch days of the recurrent dates in ascending order
+	 */
+	public LongStream epochDayStream() {
+		return StreamSupport.longStream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a spliterator of the epoch days of all the recurrent dates from the start date, which does not share
+	 * the iteration state with this calendar.
+	 * <p>It is {@link Spliterator#ORDERED ORDERED}, {@link Spliterator#SORTED SORTED},
+	 * {@link Spliterator#DISTINCT DISTINCT} and {@link Spliterator#NONNULL NONNULL}. If the rule is bounded by COUNT
+	 * or UNTIL, it is {@link Spliterator#SIZED SIZED} and {@link Spliterator#SUBSIZED SUBSIZED} as well, and it is
+	 * split in halves of the days up to the {@link #lastOccurrence() last recurrent date}. Otherwise it splits
+	 * batches of recurrent dates from the head, which grow on each split.</p>
+	 * @return the spliterator of the epoch days of the recurrent dates
+	 */
+	public Spliterator.OfLong spliterator() {
+		return RecurrenceSpliterator.of(rule, start, maxCursorMoves, lastEpochDay(rule, start, lattice()));
+	}
+
+	/**
+	 * Returns all the recurrent dates within the window from {@code fromLocalDate} to {@code toLocalDate}, both inclusive.
+	 * <p>It {@link #seek(LocalDate) seeks} to {@code fromLocalDate} first, the recurrent dates before the window are
+	 * not iterated. Afterwards the calendar continues with the first recurrent date after the window.</p>
+	 * <p>The recurrent dates of the window are counted by the lattice first, so it never throws
+	 * {@link InfiniteLoopException} if there is no more recurrent date in the window.</p>
+	 * @param fromLocalDate the first date of the window
+	 * @param toLocalDate the last date of the window
+	 * @return the recurrent dates in the window, in ascending order
+	 */
+	public List<LocalDate> between(LocalDate fromLocalDate, LocalDate toLocalDate) {
+		seek(fromLocalDate);
+		long toEpochDay = toLocalDate.toEpochDay();
+		List<LocalDate> dates = new ArrayList<>();
+		// the recurrent dates of the window are counted by the lattice once, so the generator is never moved after
+		// the last one of them
+		while (hasNext(toEpochDay, Long.MAX_VALUE)) {
+			generated = false;
+			dates.add(LocalDate.ofEpochDay(next));
+		}
+		return dates;
+	}
+
+	/**
+	 * the same as {@link #between(LocalDate, LocalDate)}, but writes the epoch days of the recurrent dates into the
+	 * buffer, starting at {@code offset}, instead of creating any object.
+	 * <p>If the buffer is full before the end of the window, the calendar continues with the first recurrent
+	 * date which is not written, so the rest of the window can be filled by {@link #nextEpochDay()} or by
+	 * another invocation from the day after the last written one.</p>
+	 * @param epochDays the buffer of the epoch days
+	 * @param offset the index of the buffer to write the first epoch day
+	 * @param fromEpochDay the epoch day of the first date of the window
+	 * @param toEpochDay the epoch day of the last date of the window, inclusive
+	 * @return the number of epoch days written
+	 */
+	public int fill(int[] epochDays, int offset, long fromEpochDay, long toEpochDay) {
+		seek(fromEpochDay);
+		int index = offset;
+		while (index < epochDays.length && hasNext(toEpochDay, Long.MAX_VALUE)) {
+			generated = false;
+			epochDays[index++] = (int) next;
+		}
+		return index - offset;
+	}
+
+	private boolean isCountExceeded() {
+		return rule.getCount() > 0 && cursor >= rule.getCount();
 	}
 }
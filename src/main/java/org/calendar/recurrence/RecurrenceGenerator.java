@@ -22,10 +22,49 @@ import java.time.LocalDate;
  *
  */
 public interface RecurrenceGenerator {
+	/** the default maximum number of cursor moves to find a recurrent date, see {@link #setMaxCursorMoves(int)} */
+	int DEFAULT_MAX_CURSOR_MOVES = 100000;
+	/**
+	 * the result of {@link #nextEpochDay()} if the cursor is moved after UNTIL without any recurrent date, or the
+	 * rule is known to never recur
+	 */
+	long NO_MORE = Long.MAX_VALUE;
 
-	LocalDate next();
+	/**
+	 * @return the epoch day of the next recurrent date, or {@link #NO_MORE} if there is none until UNTIL, or none at all
+	 * @throws InfiniteLoopException if the cursor is moved over the maximum number of times without any
+	 *             recurrent date, before UNTIL
+	 */
+	long nextEpochDay();
+
+	default LocalDate next() {
+		return LocalDate.ofEpochDay(nextEpochDay());
+	}
 	
 	void setInterval(int interval);
+
+	/**
+	 * to limit the number of cursor moves without any recurrent date, so that a rule which has no more
+	 * recurrent date, or has too few of them, fails fast instead of spinning forever.
+	 * @param maxCursorMoves the maximum number of cursor moves for each recurrent date
+	 */
+	void setMaxCursorMoves(int maxCursorMoves);
 	
-	void setStartDate(LocalDate startDate);
+	default void setStartDate(LocalDate startDate) {
+		setStartEpochDay(startDate.toEpochDay());
+	}
+
+	/**
+	 * to (re)start the generator from the epoch day of recurrence start date
+	 * @param startEpochDay
+	 */
+	void setStartEpochDay(long startEpochDay);
+
+	/**
+	 * to move the cursor directly to the interval-aligned period of {@code fromEpochDay}, so that the
+	 * next recurrent date is the first one on or after it.
+	 * <p>It must be invoked after {@link #setStartEpochDay(long)} with a day after the start day.</p>
+	 * @param fromEpochDay
+	 */
+	void seek(long fromEpochDay);
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * The inverted index of many recurrences, which finds the series which occur on a date, without iterating any of
+ * them.
+ * <p>Each series is posted to the buckets of the one rule part which excludes the most days: the months of BYMONTH,
+ * the days of month of BYMONTHDAY (or the day-of-month of start date for MONTHLY), the days of week of BYDAY (or the
+ * day-of-week of start date for WEEKLY), or the residue of the day, week or month modulo the interval. A lookup
+ * touches only the buckets of the date, and each candidate is verified by the membership test of
+ * {@link RecurrenceLattice#contains(long)} and the last recurrent date, which is computed once when it is added.</p>
+ * <p>The series are added and removed incrementally. A removed series is dropped from the buckets when they are
+ * looked up next time. It must not be used by multiple threads.</p>
+ */
+public class RecurrenceIndex {
+	private static final int MAX_DAYS_OF_MONTH = 31;
+	private static final int[] NONE = new int[0];
+	private RecurrenceLattice[] lattices = new RecurrenceLattice[16];// null if the series is removed
+	private long[] lastDays = new long[16];
+	private int nextSeriesId;
+	private int size;
+	private final Bucket[] monthBuckets = newBuckets(EpochDays.MONTHS_PER_YEAR + 1);// by month-of-year from 1
+	private final Bucket[] dayOfMonthBuckets = newBuckets(MAX_DAYS_OF_MONTH + 1);// by day-of-month from 1
+	private final Bucket[] dayOfWeekBuckets = newBuckets(EpochDays.DAYS_PER_WEEK + 1);// by day-of-week from 1 (Monday)
+	private Frequency[] groupFreqs = new Frequency[4];// the frequency of each group of residue buckets
+	private int[] groupIntervals = new int[4];// the interval of each group of residue buckets
+	private Bucket[][] residueBuckets = new Bucket[4][];// by group of frequency and interval, then by residue
+	private int groupCount;
+	private final Bucket anyDayBucket = new Bucket();// the series which may occur on any day
+	private int[] found = NONE;// the series found by the lookup
+	private int foundCount;
+
+	/**
+	 * Adds the recurrence into the index.
+	 * @param rule the rule of the recurrence
+	 * @param startLocalDate the recurrence start date
+	 * @return the series id of the recurrence, which is increasing from 0 and never reused
+	 */
+	public int add(CompiledRecurrenceRule rule, LocalDate startLocalDate) {
+		return add(rule, startLocalDate.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #add(CompiledRecurrenceRule, LocalDate)} but the start date is given as epoch day.
+	 * @param rule the rule of the recurrence
+	 * @param startEpochDay the epoch day of the recurrence start date
+	 * @return the series id of the recurrence
+	 */
+	public int add(CompiledRecurrenceRule rule, long startEpochDay) {
+		int seriesId = nextSeriesId++;
+		if (seriesId == lattices.length) {
+			lattices = Arrays.copyOf(lattices, seriesId * 2);
+			lastDays = Arrays.copyOf(lastDays, seriesId * 2);
+		}
+		RecurrenceLattice lattice = new RecurrenceLattice(rule, startEpochDay);
+		lattices[seriesId] = lattice;
+		lastDays[seriesId] = RecurrenceCalendar.lastEpochDay(rule, startEpochDay, lattice);
+		size++;
+		post(seriesId, rule, startEpochDay);
+		return seriesId;
+	}
+
+	/**
+	 * Removes the recurrence from the index.
+	 * @param seriesId the series id of the recurrence
+	 * @return true if it is removed, or false if it is not in the index
+	 */
+	public boolean remove(int seriesId) {
+		if (seriesId < 0 || seriesId >= nextSeriesId || lattices[seriesId] == null) {
+			return false;
+		}
+		lattices[seriesId] = null;
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return the number of the recurrences in the index
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the recurrences which occur on the date.
+	 * @param date the date to find
+	 * @return the series ids of the recurrences in ascending order
+	 */
+	public int[] seriesOn(LocalDate date) {
+		return seriesOn(date.toEpochDay());
+	}
+
+	/**
+	 * the same as {@link #seriesOn(LocalDate)} but the date is given as epoch day.
+	 * @param epochDay the epoch day of the date to find
+	 * @return the series ids of the recurrences in ascending order
+	 */
+	public int[] seriesOn(long epochDay) {
+		int date = EpochDays.yearMonthDay(epochDay);
+		foundCount = 0;
+		monthBuckets[EpochDays.month(date)].collect(epochDay);
+		dayOfMonthBuckets[EpochDays.dayOfMonth(date)].collect(epochDay);
+		dayOfWeekBuckets[EpochDays.dayOfWeek(epochDay)].collect(epochDay);
+		anyDayBucket.collect(epochDay);
+		long weeks = EpochDays.unit(Frequency.WEEKLY, epochDay);
+		long months = EpochDays.months(date);
+		for (int group = 0; group < groupCount; group++) {
+			Frequency freq = groupFreqs[group];
+			long unit = freq == Frequency.DAILY ? epochDay : freq == Frequency.WEEKLY ? weeks : months;
+			Bucket[] buckets = residueBuckets[group];
+			int residue = (int) Math.floorMod(unit, (long) groupIntervals[group]);
+			if (residue >= buckets.length || buckets[residue] == null) {
+				continue;
+			}
+			buckets[residue].collect(epochDay);
+			if (buckets[residue].size == 0) {
+				buckets[residue] = null;
+			}
+		}
+		int[] seriesIds = Arrays.copyOf(found, foundCount);
+		Arrays.sort(seriesIds);
+		return seriesIds;
+	}
+
+	/**
+	 * to post the series to the buckets of the rule part which excludes the most days.
+	 */
+	private void post(int seriesId, CompiledRecurrenceRule rule, long startEpochDay) {
+		Frequency freq = rule.getFreq();
+		int interval = rule.getInterval();
+		int months = 0;
+		for (int month = 1; month <= EpochDays.MONTHS_PER_YEAR; month++) {
+			if (rule.getMonthValidator() == null || rule.getMonthValidator().isValidMonth(month)) {
+				months |= 1 << month;
+			}
+		}
+		int daysOfMonth = daysOfMonth(rule, startEpochDay);
+		int daysOfWeek = daysOfWeek(rule, startEpochDay);
+		// the fractions of days which are not excluded by each rule part
+		double monthFraction = Integer.bitCount(months) / (double) EpochDays.MONTHS_PER_YEAR;
+		double dayOfMonthFraction = Integer.bitCount(daysOfMonth) / (double) MAX_DAYS_OF_MONTH;
+		double dayOfWeekFraction = Integer.bitCount(daysOfWeek) / (double) EpochDays.DAYS_PER_WEEK;
+		double residueFraction = 1.0 / interval;
+		double min = Math.min(Math.min(monthFraction, dayOfMonthFraction), Math.min(dayOfWeekFraction, residueFraction));
+		if (min >= 1) {
+			anyDayBucket.add(seriesId);
+		} else if (residueFraction == min) {
+			int residue = (int) Math.floorMod(EpochDays.unit(freq, startEpochDay), (long) interval);
+			residueBucket(freq, interval, residue).add(seriesId);
+		} else if (monthFraction == min) {
+			post(seriesId, monthBuckets, months);
+		} else if (dayOfMonthFraction == min) {
+			post(seriesId, dayOfMonthBuckets, daysOfMonth);
+		} else {
+			post(seriesId, dayOfWeekBuckets, daysOfWeek << 1);
+		}
+	}
+
+	/**
+	 * @return the bucket of the residue in the group of the frequency and interval, which are created on demand
+	 */
+	private Bucket residueBucket(Frequency freq, int interval, int residue) {
+		int group = 0;
+		while (group < groupCount && (groupFreqs[group] != freq || groupIntervals[group] != interval)) {
+			group++;
+		}
+		if (group == groupCount) {
+			if (groupCount == groupFreqs.length) {
+				groupFreqs = Arrays.copyOf(groupFreqs, groupCount * 2);
+				groupIntervals = Arrays.copyOf(groupIntervals, groupCount * 2);
+				residueBuckets = Arrays.copyOf(residueBuckets, groupCount * 2);
+			}
+			groupFreqs[group] = freq;
+			groupIntervals[group] = interval;
+			residueBuckets[group] = new Bucket[0];
+			groupCount++;
+		}
+		Bucket[] buckets = residueBuckets[group];
+		if (residue >= buckets.length) {
+			// grown to the largest residue only, a large interval may have few series
+			buckets = Arrays.copyOf(buckets, Math.min(interval, Math.max(residue + 1, buckets.length * 2)));
+			residueBuckets[group] = buckets;
+		}
+		if (buckets[residue] == null) {
+			buckets[residue] = new Bucket();
+		}
+		return buckets[residue];
+	}
+
+	private static void post(int seriesId, Bucket[] buckets, int bits) {
+		for (int i = 1; i < buckets.length; i++) {
+			if ((bits & (1 << i)) != 0) {
+				buckets[i].add(seriesId);
+			}
+		}
+	}
+
+	/**
+	 * @return the days of month on which the series may occur as bits, i.e. bit 1 is set for the 1st
+	 */
+	private static int daysOfMonth(CompiledRecurrenceRule rule, long startEpochDay) {
+		DayOfMonthValidator dayOfMonthValidator = rule.getDayOfMonthValidator();
+		if (dayOfMonthValidator != null) {
+			int days = 0;
+			for (int lengthOfMonth = 28; lengthOfMonth <= MAX_DAYS_OF_MONTH; lengthOfMonth++) {
+				days |= dayOfMonthValidator.daysOfMonth(lengthOfMonth);
+			}
+			return days;
+		}
+		if (rule.getFreq() == Frequency.MONTHLY && rule.getDayOfWeekValidator() == null) {
+			return 1 << EpochDays.dayOfMonth(EpochDays.yearMonthDay(startEpochDay));
+		}
+		return -2;
+	}
+
+	/**
+	 * @return the days of week on which the series may occur as bits, i.e. bit 0 is set for Monday
+	 */
+	private static int daysOfWeek(CompiledRecurrenceRule rule, long startEpochDay) {
+		if (rule.getDayOfWeekValidator() != null) {
+			return rule.getDayOfWeekValidator().daysOfWeek();
+		}
+		if (rule.getFreq() == Frequency.WEEKLY && rule.getDayOfMonthValidator() == null) {
+			return 1 << (EpochDays.dayOfWeek(startEpochDay) - 1);
+		}
+		return (1 << EpochDays.DAYS_PER_WEEK) - 1;
+	}
+
+	private Bucket[] newBuckets(int length) {
+		Bucket[] buckets = new Bucket[length];
+		for (int i = 0; i < length; i++) {
+			buckets[i] = new Bucket();
+		}
+		return buckets;
+	}
+
+	/**
+	 * The series ids of a bucket, in a growable array of primitives.
+	 */
+	private final class Bucket {
+		private int[] seriesIds = NONE;
+		private int size;
+
+		void add(int seriesId) {
+			if (size == seriesIds.length) {
+				seriesIds = Arrays.copyOf(seriesIds, Math.max(4, size * 2));
+			}
+			seriesIds[size++] = seriesId;
+		}
+
+		/**
+		 * to append the series which occur on the epoch day to the found ones, and to drop the removed series.
+		 */
+		void collect(long epochDay) {
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				int seriesId = seriesIds[i];
+				RecurrenceLattice lattice = lattices[seriesId];
+				if (lattice == null) {
+					continue;
+				}
+				seriesIds[kept++] = seriesId;
+				if (epochDay <= lastDays[seriesId] && lattice.contains(epochDay)) {
+					if (foundCount == found.length) {
+						found = Arrays.copyOf(found, Math.max(16, foundCount * 2));
+					}
+					found[foundCount++] = seriesId;
+				}
+			}
+			size = kept;
+		}
+	}
+}
@@ -0,0 +1,520 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+/**
+ * The recurrent days of a {@link CompiledRecurrenceRule} from a start day, computed by arithmetic instead of
+ * iterating a generator.
+ * <p>A day recurs if it is on the interval lattice of the frequency, aligned to the start day, and it matches the
+ * BY rule parts. Both are masks of the days of a month, so the recurrent days of any month are found in constant
+ * time by {@link #daysOfMonth(long)}, and they are counted by {@link Integer#bitCount(int)}.</p>
+ * <p>The masks of the months after the start month repeat with a period of whole 400-year cycles, in which the
+ * calendar repeats and the lattice comes back to the same days, so the recurrent days of a period are counted once
+ * and the whole periods are skipped by multiplication.</p>
+ * <p>COUNT and UNTIL are not applied here. It is created for one start day and used by one thread.</p>
+ */
+final class RecurrenceLattice {
+	/** the result of {@link #epochDayAt(long)} if there is no such recurrent day */
+	static final long NOT_FOUND = Long.MIN_VALUE;
+	private static final int MONTHS_PER_CYCLE = 400 * EpochDays.MONTHS_PER_YEAR;
+	private final CompiledRecurrenceRule rule;
+	private final Frequency freq;
+	private final int interval;
+	private final long startDay;
+	private final long startMonday;
+	private final long startMonths;// the months since year 0 of the start day, i.e. year * 12 + month - 1
+	private final int startDayOfMonth;
+	private final int startDayOfWeek;
+	private final boolean byDay;// true if there is BYDAY or BYMONTHDAY
+	private final long periodMonths;// the months in which the masks repeat
+
+	RecurrenceLattice(CompiledRecurrenceRule rule, long startDay) {
+		this.rule = rule;
+		this.freq = rule.getFreq();
+		this.interval = rule.getInterval();
+		this.startDay = startDay;
+		int startDate = EpochDays.yearMonthDay(startDay);
+		this.startDayOfWeek = EpochDays.dayOfWeek(startDay);
+		this.startMonday = startDay - startDayOfWeek + 1;
+		this.startMonths = EpochDays.months(startDate);
+		this.startDayOfMonth = EpochDays.dayOfMonth(startDate);
+		this.byDay = rule.getDayOfWeekValidator() != null || rule.getDayOfMonthValidator() != null;
+		this.periodMonths = periodMonths(freq, interval);
+	}
+
+	/**
+	 * @return the months of the whole 400-year cycles after which the lattice is on the same days of month
+	 */
+	private static long periodMonths(Frequency freq, int interval) {
+		switch (freq) {
+		case DAILY:
+			return (long) MONTHS_PER_CYCLE * (interval / gcd(EpochDays.DAYS_PER_CYCLE, interval));
+		case WEEKLY:
+			return (long) MONTHS_PER_CYCLE * (interval / gcd(EpochDays.DAYS_PER_CYCLE / 7, interval));
+		default:
+			return (long) MONTHS_PER_CYCLE / gcd(MONTHS_PER_CYCLE, interval) * interval;
+		}
+	}
+
+	static int gcd(int a, int b) {
+		while (b != 0) {
+			int remainder = a % b;
+			a = b;
+			b = remainder;
+		}
+		return a;
+	}
+
+	/**
+	 * @return true if the epoch day is on or after the start day, on the interval lattice and matches the BY rule
+	 *         parts, regardless of COUNT and UNTIL
+	 */
+	boolean contains(long epochDay) {
+		if (epochDay < startDay) {
+			return false;
+		}
+		int date = EpochDays.yearMonthDay(epochDay);
+		return (daysOfMonth(EpochDays.months(date)) & (1 << EpochDays.dayOfMonth(date))) != 0;
+	}
+
+	/**
+	 * counts the recurrent days from the start day to the day before {@code epochDay}.
+	 * @param epochDay the day to count to, exclusive
+	 * @param limit the maximum number to count
+	 * @return the number of recurrent days before {@code epochDay}, or {@code limit} if there are more
+	 * @see #count(long, long, long)
+	 */
+	long countBefore(long epochDay, long limit) {
+		return count(startDay, epochDay, limit);
+	}
+
+	/**
+	 * counts the recurrent days in the range month by month, only the months at both edges are partial. It stops
+	 * as soon as {@code limit} is reached, so that it takes no more months than the first {@code limit} recurrences,
+	 * and the whole periods after the first one are skipped.
+	 * @param fromEpochDay the first day of the range, inclusive
+	 * @param toEpochDay the last day of the range, exclusive
+	 * @param limit the maximum number to count
+	 * @return the number of recurrent days in the range, or {@code limit} if there are more
+	 */
+	long count(long fromEpochDay, long toEpochDay, long limit) {
+		fromEpochDay = Math.max(fromEpochDay, startDay);
+		if (toEpochDay <= fromEpochDay) {
+			return 0;
+		}
+		int fromDate = EpochDays.yearMonthDay(fromEpochDay);
+		int toDate = EpochDays.yearMonthDay(toEpochDay);
+		long firstMonths = EpochDays.months(fromDate);
+		long lastMonths = EpochDays.months(toDate);
+		// the days from fromEpochDay in its month, and the days before toEpochDay in its month
+		int firstDays = daysOfMonth(firstMonths) & (-1 << EpochDays.dayOfMonth(fromDate));
+		int lastDays = ~(-1 << EpochDays.dayOfMonth(toDate));
+		if (firstMonths == lastMonths) {
+			return Math.min(Integer.bitCount(firstDays & lastDays), limit);
+		}
+		long count = Integer.bitCount(firstDays);
+		long periodStart = nextMonths(firstMonths);
+		long periodStartCount = count;
+		long months = periodStart;
+		while (months < lastMonths && count < limit) {
+			count += Integer.bitCount(daysOfMonth(months));
+			months = nextMonths(months);
+			if (months == periodStart + periodMonths) {
+				// the first period is counted, skip the whole periods before the last month
+				long periods = (lastMonths - months) / periodMonths;
+				count += periods * (count - periodStartCount);
+				months += periods * periodMonths;
+			}
+		}
+		if (count < limit) {
+			count += Integer.bitCount(daysOfMonth(lastMonths) & lastDays);
+		}
+		return Math.min(count, limit);
+	}
+
+	/**
+	 * finds the recurrent day by its index, month by month, and the whole periods after the first one are skipped.
+	 * @param index the index of the recurrent day, 0 for the first one
+	 * @return the epoch day of the recurrent day, or {@link #NOT_FOUND} if the rule recurs fewer times
+	 */
+	long epochDayAt(long index) {
+		long count = 0;
+		long startCount = 0;
+		for (long months = startMonths;; months = nextMonths(months)) {
+			int days = daysOfMonth(months);
+			int monthCount = Integer.bitCount(days);
+			if (count + monthCount > index) {
+				for (long i = count; i < index; i++) {
+					days &= days - 1;// clear the lowest recurrent day
+				}
+				int year = (int) Math.floorDiv(months, EpochDays.MONTHS_PER_YEAR);
+				int month = (int) Math.floorMod(months, EpochDays.MONTHS_PER_YEAR) + 1;
+				return EpochDays.of(year, month, Integer.numberOfTrailingZeros(days));
+			}
+			count += monthCount;
+			if (months == startMonths) {
+				startCount = count;
+			} else if (months == startMonths + periodMonths) {
+				long periodCount = count - startCount;
+				if (periodCount == 0) {
+					return NOT_FOUND;// never recurs again
+				}
+				long periods = (index - count) / periodCount;
+				count += periods * periodCount;
+				months += periods * periodMonths;
+			}
+		}
+	}
+
+	/**
+	 * counts the days which recur in both this and the other lattice in the range, in the same way as
+	 * {@link #count(long, long, long)}, the whole periods of both lattices after the first one are skipped.
+	 * @param other the other lattice
+	 * @param fromEpochDay the first day of the range, inclusive
+	 * @param toEpochDay the last day of the range, exclusive
+	 * @param limit the maximum number to count
+	 * @return the number of the common recurrent days in the range, or {@code limit} if there are more
+	 */
+	long countCommon(RecurrenceLattice other, long fromEpochDay, long toEpochDay, long limit) {
+		fromEpochDay = Math.max(fromEpochDay, Math.max(startDay, other.startDay));
+		if (toEpochDay <= fromEpochDay || isDisjoint(other)) {
+			return 0;
+		}
+		int fromDate = EpochDays.yearMonthDay(fromEpochDay);
+		int toDate = EpochDays.yearMonthDay(toEpochDay);
+		long firstMonths = EpochDays.months(fromDate);
+		long lastMonths = EpochDays.months(toDate);
+		int firstDays = commonDays(other, firstMonths) & (-1 << EpochDays.dayOfMonth(fromDate));
+		int lastDays = ~(-1 << EpochDays.dayOfMonth(toDate));
+		if (firstMonths == lastMonths) {
+			return Math.min(Integer.bitCount(firstDays & lastDays), limit);
+		}
+		long commonPeriodMonths = commonPeriodMonths(other);
+		int commonMonths = monthsOfYear() & other.monthsOfYear();
+		long count = Integer.bitCount(firstDays);
+		long periodStart = nextCommonMonths(other, firstMonths, commonMonths);
+		long periodStartCount = count;
+		long months = periodStart;
+		while (months < lastMonths && count < limit) {
+			count += Integer.bitCount(commonDays(other, months));
+			months = nextCommonMonths(other, months, commonMonths);
+			if (months - periodStart == commonPeriodMonths) {
+				// the first period is counted, skip the whole periods before the last month
+				long periods = (lastMonths - months) / commonPeriodMonths;
+				count += periods * (count - periodStartCount);
+				months += periods * commonPeriodMonths;
+			}
+		}
+		if (count < limit && months == lastMonths) {
+			count += Integer.bitCount(commonDays(other, lastMonths) & lastDays);
+		}
+		return Math.min(count, limit);
+	}
+
+	/**
+	 * finds the first day in the range which recurs in both this and the other lattice. The months are searched up to
+	 * the end of a whole period of both lattices at most, if there is none in it, there is none ever after.
+	 * @param other the other lattice
+	 * @param fromEpochDay the first day of the range, inclusive
+	 * @param toEpochDay the last day of the range, inclusive, or {@link Long#MAX_VALUE} if it is open
+	 * @return the epoch day of the common recurrent day, or {@link #NOT_FOUND} if there is none in the range
+	 */
+	long nextCommonDay(RecurrenceLattice other, long fromEpochDay, long toEpochDay) {
+		fromEpochDay = Math.max(fromEpochDay, Math.max(startDay, other.startDay));
+		if (toEpochDay < fromEpochDay || isDisjoint(other)) {
+			return NOT_FOUND;
+		}
+		int fromDate = EpochDays.yearMonthDay(fromEpochDay);
+		long firstMonths = EpochDays.months(fromDate);
+		long epochDay = NOT_FOUND;
+		int days = commonDays(other, firstMonths) & (-1 << EpochDays.dayOfMonth(fromDate));
+		if (days != 0) {
+			epochDay = fromEpochDay + Integer.numberOfTrailingZeros(days) - EpochDays.dayOfMonth(fromDate);
+		} else if (freq == Frequency.DAILY && other.freq == Frequency.DAILY
+				&& (long) interval / gcd(interval, other.interval) * other.interval > 31) {
+			// the common days are fewer than one a month, they are stepped instead of the months
+			epochDay = nextCommonDailyDay(other, fromEpochDay, toEpochDay);
+		} else {
+			long endMonths = firstMonths + 1 + commonPeriodMonths(other);
+			if (toEpochDay != Long.MAX_VALUE) {
+				endMonths = Math.min(endMonths, EpochDays.months(EpochDays.yearMonthDay(toEpochDay)) + 1);
+			}
+			int commonMonths = monthsOfYear() & other.monthsOfYear();
+			for (long months = nextCommonMonths(other, firstMonths, commonMonths); months < endMonths;
+					months = nextCommonMonths(other, months, commonMonths)) {
+				days = commonDays(other, months);
+				if (days != 0) {
+					int year = (int) Math.floorDiv(months, EpochDays.MONTHS_PER_YEAR);
+					int month = (int) Math.floorMod(months, EpochDays.MONTHS_PER_YEAR) + 1;
+					epochDay = EpochDays.of(year, month, Integer.numberOfTrailingZeros(days));
+					break;
+				}
+			}
+		}
+		return epochDay > toEpochDay ? NOT_FOUND : epochDay;
+	}
+
+	/**
+	 * the same as {@link #nextCommonDay(RecurrenceLattice, long, long)} but both lattices are DAILY, the common days
+	 * of the intervals are {@code c + k * lcm}, which are stepped for a whole 400-year cycle at most.
+	 */
+	private long nextCommonDailyDay(RecurrenceLattice other, long fromEpochDay, long toEpochDay) {
+		// the first day on or after fromEpochDay on both lattices, by the chinese remainder theorem
+		long day = fromEpochDay + Math.floorMod(startDay - fromEpochDay, (long) interval);
+		int gcd = gcd(interval, other.interval);
+		long otherInterval = other.interval / gcd;
+		if (otherInterval > 1) {
+			// day + k * interval is on the other lattice for k = distance / gcd * inverse(interval / gcd)
+			long distance = Math.floorMod(other.startDay - day, (long) other.interval) / gcd;
+			long inverse = inverse(interval / gcd % otherInterval, otherInterval);
+			day += distance * inverse % otherInterval * interval;
+		}
+		long step = interval / gcd * (long) other.interval;
+		long steps = EpochDays.DAYS_PER_CYCLE / gcd(EpochDays.DAYS_PER_CYCLE, (int) (step % EpochDays.DAYS_PER_CYCLE));
+		for (long i = 0; i < steps && day <= toEpochDay; i++, day += step) {
+			if (contains(day) && other.contains(day)) {
+				return day;
+			}
+			if (toEpochDay - day < step) {
+				break;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * @return the inverse of {@code a} modulo {@code m}, they must be coprime
+	 */
+	private static long inverse(long a, long m) {
+		long x = 0;
+		long nextX = 1;
+		for (long r = m, nextR = a; nextR != 0;) {
+			long quotient = r / nextR;
+			long remainder = r - quotient * nextR;
+			r = nextR;
+			nextR = remainder;
+			long x0 = x - quotient * nextX;
+			x = nextX;
+			nextX = x0;
+		}
+		return Math.floorMod(x, m);
+	}
+
+	/**
+	 * @return the recurrent days of the month in both this and the other lattice as bits
+	 */
+	private int commonDays(RecurrenceLattice other, long months) {
+		int days = daysOfMonth(months);
+		return days == 0 ? 0 : days & other.daysOfMonth(months);
+	}
+
+	/**
+	 * @param commonMonths the months of year of both lattices as bits, see {@link #monthsOfYear()}
+	 * @return the months since year 0 of the next month which may have any recurrent day of both lattices, they must
+	 *         not be {@link #isDisjoint(RecurrenceLattice) disjoint}
+	 */
+	private long nextCommonMonths(RecurrenceLattice other, long months, int commonMonths) {
+		// each of the month of year and both intervals moves it to the first month on or after it which matches,
+		// until all of them match
+		for (long next = months + 1;;) {
+			int month = (int) Math.floorMod(next, EpochDays.MONTHS_PER_YEAR) + 1;
+			int laterMonths = commonMonths & (-1 << month);
+			long candidate = next + (laterMonths != 0 ? Integer.numberOfTrailingZeros(laterMonths) - month
+					: EpochDays.MONTHS_PER_YEAR - month + Integer.numberOfTrailingZeros(commonMonths));
+			candidate = other.nextMonths(nextMonths(candidate - 1) - 1);
+			if (candidate == next) {
+				return next;
+			}
+			next = candidate;
+		}
+	}
+
+	/**
+	 * @return true if the other lattice never recurs on the same day, by the residues of their intervals, or by their
+	 *         months of year, days of month or days of week
+	 */
+	private boolean isDisjoint(RecurrenceLattice other) {
+		if (freq == other.freq) {
+			// the units start + k * interval of both lattices meet only if the gcd of intervals divides the distance
+			long distance;
+			switch (freq) {
+			case DAILY:
+				distance = startDay - other.startDay;
+				break;
+			case WEEKLY:
+				distance = (startMonday - other.startMonday) / 7;
+				break;
+			default:
+				distance = startMonths - other.startMonths;
+			}
+			if (Math.floorMod(distance, (long) gcd(interval, other.interval)) != 0) {
+				return true;
+			}
+		}
+		return (monthsOfYear() & other.monthsOfYear()) == 0 || (daysOfMonth() & other.daysOfMonth()) == 0
+				|| (daysOfWeek() & other.daysOfWeek()) == 0;
+	}
+
+	/**
+	 * @return the months of year in which the lattice may recur as bits, i.e. bit 1 is set for January, by BYMONTH
+	 *         and the months of year which the MONTHLY interval reaches from the start month
+	 */
+	private int monthsOfYear() {
+		int step = freq == Frequency.MONTHLY ? gcd(interval, EpochDays.MONTHS_PER_YEAR) : 1;
+		MonthValidator monthValidator = rule.getMonthValidator();
+		int months = 0;
+		for (int month = (int) Math.floorMod(startMonths, step) + 1; month <= EpochDays.MONTHS_PER_YEAR; month += step) {
+			if (monthValidator == null || monthValidator.isValidMonth(month)) {
+				months |= 1 << month;
+			}
+		}
+		return months;
+	}
+
+	/**
+	 * @return the days of month on which the lattice may recur in a month of any length as bits, i.e. bit 1 is set
+	 *         for the 1st
+	 */
+	private int daysOfMonth() {
+		DayOfMonthValidator dayOfMonthValidator = rule.getDayOfMonthValidator();
+		if (dayOfMonthValidator != null) {
+			int days = 0;
+			for (int lengthOfMonth = 28; lengthOfMonth <= 31; lengthOfMonth++) {
+				days |= dayOfMonthValidator.daysOfMonth(lengthOfMonth);
+			}
+			return days;
+		}
+		if (freq == Frequency.MONTHLY && !byDay) {
+			return 1 << startDayOfMonth;
+		}
+		return -2;
+	}
+
+	/**
+	 * @return the days of week on which the lattice may recur as bits, i.e. bit 0 is set for Monday
+	 */
+	private int daysOfWeek() {
+		if (rule.getDayOfWeekValidator() != null) {
+			return rule.getDayOfWeekValidator().daysOfWeek();
+		}
+		if (freq == Frequency.WEEKLY && !byDay) {
+			return 1 << (startDayOfWeek - 1);
+		}
+		return (1 << 7) - 1;
+	}
+
+	/**
+	 * @return the months after which the masks of both lattices repeat
+	 */
+	private long commonPeriodMonths(RecurrenceLattice other) {
+		long gcd = periodMonths;
+		for (long b = other.periodMonths; b != 0;) {
+			long remainder = gcd % b;
+			gcd = b;
+			b = remainder;
+		}
+		return periodMonths / gcd * other.periodMonths;
+	}
+
+	/**
+	 * @return the months since year 0 of the next month which may have any recurrent day
+	 */
+	long nextMonths(long months) {
+		if (freq == Frequency.MONTHLY) {
+			// the first recurrent month after the month
+			return months + interval - Math.floorMod(months - startMonths, (long) interval);
+		}
+		return months + 1;
+	}
+
+	/**
+	 * @param months the months since year 0, i.e. year * 12 + month - 1
+	 * @return the recurrent days of the month as bits, i.e. bit 1 is set for the 1st
+	 */
+	int daysOfMonth(long months) {
+		if (months < startMonths) {
+			return 0;
+		}
+		int year = (int) Math.floorDiv(months, EpochDays.MONTHS_PER_YEAR);
+		int month = (int) Math.floorMod(months, EpochDays.MONTHS_PER_YEAR) + 1;
+		MonthValidator monthValidator = rule.getMonthValidator();
+		if (monthValidator != null && !monthValidator.isValidMonth(month)) {
+			return 0;
+		}
+		int lengthOfMonth = EpochDays.lengthOfMonth(year, month);
+		long firstDayOfMonth = EpochDays.of(year, month, 1);
+		int firstDayOfWeek = EpochDays.dayOfWeek(firstDayOfMonth);
+		int days;
+		switch (freq) {
+		case DAILY:
+			days = rule.daysOfMonth(firstDayOfWeek, lengthOfMonth) & dailyLattice(firstDayOfMonth);
+			break;
+		case WEEKLY:
+			days = byDay ? rule.daysOfMonth(firstDayOfWeek, lengthOfMonth)
+					: DailyRecurrenceGenerator.LATTICES[7] << (Math.floorMod(startDayOfWeek - firstDayOfWeek, 7) + 1)
+							& (-2 >>> (31 - lengthOfMonth));
+			days &= weeklyLattice(firstDayOfMonth);
+			break;
+		default:
+			if (Math.floorMod(months - startMonths, (long) interval) != 0) {
+				return 0;
+			}
+			days = byDay ? rule.daysOfMonth(firstDayOfWeek, lengthOfMonth)
+					: startDayOfMonth <= lengthOfMonth ? 1 << startDayOfMonth : 0;
+			break;
+		}
+		if (months == startMonths) {
+			// the days from the start day
+			days &= -1 << startDayOfMonth;
+		}
+		return days;
+	}
+
+	/**
+	 * @return the days of the month on the lattice {@code start + k * interval} as bits
+	 */
+	private int dailyLattice(long firstDayOfMonth) {
+		// the first lattice day of the month is the (residue + 1)th
+		long residue = Math.floorMod(startDay - firstDayOfMonth, (long) interval);
+		if (residue > 30) {
+			return 0;
+		}
+		int dayOfMonth = (int) residue + 1;
+		return interval < DailyRecurrenceGenerator.LATTICES.length
+				? DailyRecurrenceGenerator.LATTICES[interval] << dayOfMonth
+				: 1 << dayOfMonth;
+	}
+
+	/**
+	 * @return the days of the month in the recurrent weeks, which are aligned to the week of start day, as bits
+	 */
+	private int weeklyLattice(long firstDayOfMonth) {
+		if (interval == 1) {
+			return -2;
+		}
+		long weeks = Math.floorDiv(firstDayOfMonth - startMonday, 7);
+		// the day-of-month of the Monday of the week of the first day of month, from -5 to 1
+		int monday = 1 - (int) Math.floorMod(firstDayOfMonth - startMonday, 7L);
+		int days = 0;
+		for (; monday <= 31; monday += 7, weeks++) {
+			if (Math.floorMod(weeks, (long) interval) == 0) {
+				// the 7 days from the Monday, the days before the 1st are shifted out
+				days |= monday > 0 ? 0x7F << monday : 0x7F >>> -monday;
+			}
+		}
+		return days & -2;
+	}
+}
@@ -15,14 +15,13 @@
  */
 package org.calendar.recurrence;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.Objects;
 /**
  * 
  * Represents an instance of recurrent rule which create base on iCalendar string.
@@ -38,82 +37,74 @@ import java.util.stream.Stream;
  *
  */
 public class RecurrenceRule {
-	private static final String EMPTY = "";
-	private static final String SPACE = " ";
 	private Frequency freq;
 	private DayOfWeekValidator dayOfWeekValidator;
 	private DayOfMonthValidator dayOfMonthValidator;
 	private MonthValidator monthValidator;
-	private static final Pattern SEMICOLON = Pattern.compile(";");
-	private static final Pattern PARAMETER_PATTERN = Pattern.compile("(\\w+)=([a-zA-Z0-9,+\\-]+)");
 	private int count;
 	private int interval = 1;// default should be one
 	private Date until;
+	private volatile CompiledRecurrenceRule compiled;// invalidated by the setters
 
-	private static final Pattern RRULE_PARTS = Pattern.compile("^RRULE:(?:FREQ|UNTIL|COUNT|INTERVAL|BYDAY|BYMONTHDAY|"
-			+ "BYWEEKDAY|BYWEEKNO|BYMONTH|BYSETPOS|WKST|X-[A-Z0-9\\-]+)\\s*=.+", Pattern.CASE_INSENSITIVE);
+	static final DateTimeFormatter UNTIL_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
 
-	private RecurrenceRule() {
+	RecurrenceRule() {
 		super();
 	}
 
+	/**
+	 * To create an instance of RecurrenceRule base on iCalendar string.
+	 * <p>The rule is rejected if no date can ever match all of its BYMONTH, BYMONTHDAY and BYDAY, e.g.
+	 * {@code RRULE:FREQ=MONTHLY;BYMONTH=2;BYMONTHDAY=30}, instead of searching for a recurrent date forever.</p>
+	 * @param icalString the rules of recurrence
+	 * @return an instance of RecurrenceRule
+	 * @throws RRuleException if the rule is not valid or it never recurs
+	 */
 	public static RecurrenceRule getInstance(String icalString) {
-		String refineRule = icalString.replaceAll(SPACE, EMPTY);
-		if (!RRULE_PARTS.matcher(refineRule).find()) {
-			throw new RRuleException("The rule is not valid:" + icalString);
-		}
-		RecurrenceRule rrule = new RecurrenceRule();
-		String paraCharSequence = refineRule.substring(6);// length of "RRULE:"
-		String[] paraKeyValuePairs = SEMICOLON.split(paraCharSequence);
-		for (String parameter : paraKeyValuePairs) {
-			Matcher matcher = PARAMETER_PATTERN.matcher(parameter);
-			if (!matcher.find()) {
-				throw new RRuleException("The rule is not valid:" + icalString);
-			}
-			String paraName = matcher.group(1);
-			String paraValue = matcher.group(2);
-			switch (paraName.toUpperCase()) {
-			case "FREQ":
-				Optional<Frequency> freq = Stream.of(Frequency.values()).filter(f -> f.name().equalsIgnoreCase(paraValue)).findFirst();
-				if (!freq.isPresent()) {
-					throw new RRuleException("The recurrent frequency[" + paraValue + "] is invalid, it only support " + Arrays.asList(Frequency.values()) + ":\n" + icalString);
-				}
-				rrule.setFreq(freq.get());
-				break;
-			case "COUNT":
-				int count = Integer.parseInt(paraValue);
-				rrule.setCount(count);
-				break;
-			case "UNTIL":
-				Date until;
-				try {
-					until = new SimpleDateFormat("yyyyMMdd'T'Hmmss'Z'").parse(paraValue);
-				} catch (ParseException e) {
-					throw new RRuleException("The recurence until date[" + paraValue + "] is not valid, it does not follow the pattern of \"yyyyMMdd'T'Hmmss'Z'\"");
-				}
-				rrule.setUntil(until);
-				break;
-			case "INTERVAL":
-				int interval = Integer.parseInt(paraValue);
-				rrule.setInterval(interval);
-				break;
-			case "BYDAY":
-				rrule.dayOfWeekValidator = new DayOfWeekValidator(paraValue);
-				break;
-			case "BYMONTH":
-				rrule.monthValidator = MonthValidator.createInstance(paraValue);
-				break;
-			case "BYMONTHDAY":
-				rrule.dayOfMonthValidator = DayOfMonthValidator.createInstance(paraValue);
-				break;
-			default:
-				break;
-			}
-		}
-		if (rrule.getFreq() == null) {
-			throw new RRuleException("The recurrent frequency must be specified:\n" + icalString);
+		return RRuleParser.parse(icalString);
+	}
+
+	/**
+	 * the same as {@link #getInstance(String)}, but parses the rule straight from the chars, e.g. a
+	 * {@link StringBuilder} or a {@link java.nio.CharBuffer}.
+	 */
+	public static RecurrenceRule getInstance(CharSequence icalString) {
+		return RRuleParser.parse(icalString);
+	}
+
+	/**
+	 * the same as {@link #getInstance(String)}, but parses the US-ASCII rule straight from the bytes between
+	 * the position and the limit of buffer, the position of buffer is not changed.
+	 */
+	public static RecurrenceRule getInstance(ByteBuffer icalBytes) {
+		return RRuleParser.parse(icalBytes);
+	}
+
+	/**
+	 * Returns the immutable form of this rule, which can be shared by any number of threads.
+	 * <p>It is compiled once and reused until this rule is changed by any setter.</p>
+	 * @return the compiled rule
+	 */
+	public CompiledRecurrenceRule compile() {
+		CompiledRecurrenceRule compiledRule = this.compiled;
+		if (compiledRule == null) {
+			compiledRule = CompiledRecurrenceRule.builder(this).build();
+			this.compiled = compiledRule;
 		}
-		return rrule;
+		return compiledRule;
+	}
+
+	/**
+	 * Counts the recurrent dates of this rule from the recurrence start date within the window, both inclusive,
+	 * without iterating them.
+	 * @param startLocalDate the recurrence start date
+	 * @param fromLocalDate the first date of the window
+	 * @param toLocalDate the last date of the window
+	 * @return the number of recurrent dates in the window
+	 * @see RecurrenceCalendar#countBetween(LocalDate, LocalDate)
+	 */
+	public long countBetween(LocalDate startLocalDate, LocalDate fromLocalDate, LocalDate toLocalDate) {
+		return RecurrenceCalendar.getInstance(startLocalDate, this).countBetween(fromLocalDate, toLocalDate);
 	}
 
 	/** the frequency of repetition */
@@ -123,6 +114,7 @@ public class RecurrenceRule {
 
 	public void setFreq(Frequency freq) {
 		this.freq = freq;
+		this.compiled = null;
 	}
 
 	public Date getUntil() {
@@ -131,6 +123,7 @@ public class RecurrenceRule {
 
 	public void setUntil(Date until) {
 		this.until = until;
+		this.compiled = null;
 	}
 
 	public int getCount() {
@@ -139,6 +132,7 @@ public class RecurrenceRule {
 
 	public void setCount(int count) {
 		this.count = count;
+		this.compiled = null;
 	}
 
 	public int getInterval() {
@@ -147,17 +141,94 @@ public class RecurrenceRule {
 
 	public void setInterval(int interval) {
 		this.interval = interval;
+		this.compiled = null;
 	}
 
 	public DayOfWeekValidator getDayOfWeekValidator() {
 		return dayOfWeekValidator;
 	}
 
+	void setDayOfWeekValidator(DayOfWeekValidator dayOfWeekValidator) {
+		this.dayOfWeekValidator = dayOfWeekValidator;
+		this.compiled = null;
+	}
+
 	public MonthValidator getMonthValidator() {
 		return monthValidator;
 	}
 
+	void setMonthValidator(MonthValidator monthValidator) {
+		this.monthValidator = monthValidator;
+		this.compiled = null;
+	}
+
 	public DayOfMonthValidator getDayOfMonthValidator() {
 		return dayOfMonthValidator;
 	}
+
+	void setDayOfMonthValidator(DayOfMonthValidator dayOfMonthValidator) {
+		this.dayOfMonthValidator = dayOfMonthValidator;
+		this.compiled = null;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(freq, count, interval, until, dayOfWeekValidator, dayOfMonthValidator, monthValidator);
+	}
+
+	/**
+	 * Two rules are equal if they have the same rule parts, regardless of the order and the case in
+	 * the iCalendar string they were created from.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RecurrenceRule)) {
+			return false;
+		}
+		RecurrenceRule other = (RecurrenceRule) obj;
+		return freq == other.freq && count == other.count && interval == other.interval
+				&& Objects.equals(until, other.until)
+				&& Objects.equals(dayOfWeekValidator, other.dayOfWeekValidator)
+				&& Objects.equals(dayOfMonthValidator, other.dayOfMonthValidator)
+				&& Objects.equals(monthValidator, other.monthValidator);
+	}
+
+	/**
+	 * @return the rule in the form of iCalendar string, e.g. {@code RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE}
+	 */
+	@Override
+	public String toString() {
+		String untilText = null;
+		if (until != null) {
+			untilText = UNTIL_FORMATTER.format(LocalDateTime.ofInstant(until.toInstant(), ZoneId.systemDefault()));
+		}
+		return format(freq, interval, count, untilText, monthValidator, dayOfMonthValidator, dayOfWeekValidator);
+	}
+
+	static String format(Frequency freq, int interval, int count, String until, MonthValidator monthValidator,
+			DayOfMonthValidator dayOfMonthValidator, DayOfWeekValidator dayOfWeekValidator) {
+		StringBuilder builder = new StringBuilder("RRULE:FREQ=").append(freq);
+		if (interval != 1) {
+			builder.append(";INTERVAL=").append(interval);
+		}
+		if (count > 0) {
+			builder.append(";COUNT=").append(count);
+		}
+		if (until != null) {
+			builder.append(";UNTIL=").append(until);
+		}
+		if (monthValidator != null) {
+			builder.append(";BYMONTH=").append(monthValidator);
+		}
+		if (dayOfMonthValidator != null) {
+			builder.append(";BYMONTHDAY=").append(dayOfMonthValidator);
+		}
+		if (dayOfWeekValidator != null) {
+			builder.append(";BYDAY=").append(dayOfWeekValidator);
+		}
+		return builder.toString();
+	}
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of {@link CompiledRecurrenceRule} instances, keyed by the normalized iCalendar string, that
+ * is the string without spaces and in upper case.
+ * <p>It is safe to be shared by any number of threads. A hit is a lock-free read; only a miss takes the lock
+ * to insert the parsed rule and to evict another one when the cache is full. The eviction approximates the
+ * least recently used order by the CLOCK (second chance) algorithm: a hit marks the rule as referenced, and the
+ * eviction sweeps over the rules in insertion order, evicting the first one that was not referenced since the
+ * last sweep.</p>
+ * <p>The cached rules are shared by the callers, which is safe because a compiled rule is immutable, unlike a
+ * {@link RecurrenceRule} whose setters would change the rule of every caller, and even its key in the cache.</p>
+ * <pre>
+ * RecurrenceRuleCache cache = new RecurrenceRuleCache(4096);
+ * CompiledRecurrenceRule rule = cache.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO,WE");
+ * </pre>
+ */
+public class RecurrenceRuleCache {
+	private final int maximumSize;
+	private final ConcurrentHashMap<String, Entry> entries;
+	private final Entry[] clock;// the cached rules in insertion order
+	private int hand;// the next rule of clock to be swept
+	private int size;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * @param maximumSize the maximum number of rules to be cached
+	 */
+	public RecurrenceRuleCache(int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("The maximum size must be positive:" + maximumSize);
+		}
+		this.maximumSize = maximumSize;
+		this.entries = new ConcurrentHashMap<>(maximumSize * 4 / 3 + 1);
+		this.clock = new Entry[maximumSize];
+	}
+
+	/**
+	 * Returns the cached rule of the iCalendar string, or parses it by {@link RecurrenceRule#getInstance(String)}
+	 * and caches it compiled if it is not cached yet.
+	 * @param icalString the rules of recurrence
+	 * @return an instance of CompiledRecurrenceRule
+	 * @throws RRuleException if the rule is not valid, the invalid rule is never cached
+	 */
+	public CompiledRecurrenceRule getInstance(String icalString) {
+		String key = normalize(icalString);
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			hitCount.increment();
+			if (!entry.referenced) {
+				entry.referenced = true;
+			}
+			return entry.rule;
+		}
+		missCount.increment();
+		CompiledRecurrenceRule rule = RecurrenceRule.getInstance(icalString).compile();
+		synchronized (clock) {
+			Entry cached = entries.get(key);
+			if (cached != null) {// cached by another thread meanwhile
+				return cached.rule;
+			}
+			Entry inserted = new Entry(key, rule);
+			if (size < maximumSize) {
+				clock[size++] = inserted;
+			} else {
+				evictInto(inserted);
+			}
+			entries.put(key, inserted);
+		}
+		return rule;
+	}
+
+	private void evictInto(Entry inserted) {
+		while (clock[hand].referenced) {
+			clock[hand].referenced = false;// second chance
+			hand = (hand + 1) % maximumSize;
+		}
+		entries.remove(clock[hand].key);
+		evictionCount.increment();
+		clock[hand] = inserted;
+		hand = (hand + 1) % maximumSize;
+	}
+
+	static String normalize(String icalString) {
+		StringBuilder key = new StringBuilder(icalString.length());
+		for (int i = 0; i < icalString.length(); i++) {
+			char c = icalString.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				key.append(c);
+			}
+		}
+		return key.toString().toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return the number of rules in the cache
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of times a cached rule was returned
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return the number of times a rule was parsed because it was not cached
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * @return the number of rules evicted to keep the cache within its maximum size
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	private static final class Entry {
+		private final String key;
+		private final CompiledRecurrenceRule rule;
+		private volatile boolean referenced;
+
+		Entry(String key, CompiledRecurrenceRule rule) {
+			this.key = key;
+			this.rule = rule;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * The spliterator of the epoch days of recurrent dates in a range of days, each split has its own generator which
+ * {@link RecurrenceGenerator#seek(long) seeks} to the first day of the range.
+ * <p>If the recurrence is bounded by COUNT or UNTIL, the range is up to the last recurrent date, and the number of
+ * recurrent dates in any range is exact by {@link RecurrenceLattice#count(long, long, long)}, so the range is split
+ * in halves of days and it is {@link #SIZED} and {@link #SUBSIZED}. Otherwise the range is open, and a batch of
+ * recurrent dates is split from the head, which ends before the recurrent date found by
+ * {@link RecurrenceLattice#epochDayAt(long)}, and the batch grows on each split.</p>
+ */
+final class RecurrenceSpliterator implements Spliterator.OfLong {
+	private static final int BATCH_UNIT = 1 << 10;
+	private static final int MAX_BATCH = 1 << 25;
+	private static final int CHARACTERISTICS = ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+	private final CompiledRecurrenceRule rule;
+	private final long startDay;
+	private final int maxCursorMoves;
+	private long fromDay;// the first day of the range
+	private final long toDay;// the last day of the range, inclusive
+	private long size;// the exact number of recurrent dates in the range if sized, otherwise Long.MAX_VALUE
+	private final boolean sized;
+	private int batch;// the number of recurrent dates to split from the head if not sized
+	private RecurrenceLattice lattice;
+	private RecurrenceGenerator generator;// created on the first traversal
+
+	private RecurrenceSpliterator(CompiledRecurrenceRule rule, long startDay, int maxCursorMoves, long fromDay,
+			long toDay, long size, boolean sized) {
+		this.rule = rule;
+		this.startDay = startDay;
+		this.maxCursorMoves = maxCursorMoves;
+		this.fromDay = fromDay;
+		this.toDay = toDay;
+		this.size = size;
+		this.sized = sized;
+	}
+
+	/**
+	 * @param lastDay the epoch day of the last recurrent date, {@link RecurrenceCalendar#UNBOUNDED} if the
+	 *            recurrence is not bounded, or {@link RecurrenceCalendar#NO_OCCURRENCE} if it never recurs
+	 * @return the spliterator of all the recurrent dates from the start day
+	 */
+	static RecurrenceSpliterator of(CompiledRecurrenceRule rule, long startDay, int maxCursorMoves, long lastDay) {
+		if (lastDay == RecurrenceCalendar.UNBOUNDED) {
+			return new RecurrenceSpliterator(rule, startDay, maxCursorMoves, startDay, Long.MAX_VALUE, Long.MAX_VALUE,
+					false);
+		}
+		if (lastDay == RecurrenceCalendar.NO_OCCURRENCE) {
+			return new RecurrenceSpliterator(rule, startDay, maxCursorMoves, startDay, startDay - 1, 0, true);
+		}
+		RecurrenceSpliterator spliterator = new RecurrenceSpliterator(rule, startDay, maxCursorMoves, startDay,
+				lastDay, 0, true);
+		spliterator.size = spliterator.lattice().countBefore(lastDay + 1, Long.MAX_VALUE);
+		return spliterator;
+	}
+
+	@Override
+	public boolean tryAdvance(LongConsumer action) {
+		if (size == 0 || fromDay > toDay) {
+			return false;
+		}
+		long epochDay = generator().nextEpochDay();
+		if (epochDay > toDay || epochDay == RecurrenceGenerator.NO_MORE) {
+			fromDay = epochDay;
+			size = 0;
+			return false;
+		}
+		fromDay = epochDay + 1;
+		if (sized) {
+			size--;
+		}
+		action.accept(epochDay);
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(LongConsumer action) {
+		if (!sized) {
+			while (tryAdvance(action)) {
+				// the open range is ended by the consumer, or by the generator
+			}
+			return;
+		}
+		// the number of recurrent dates is known, the generator is not asked for any more
+		RecurrenceGenerator generator = generator();
+		for (; size > 0; size--) {
+			action.accept(generator.nextEpochDay());
+		}
+		fromDay = toDay + 1;
+	}
+
+	@Override
+	public RecurrenceSpliterator trySplit() {
+		if (generator != null) {
+			return null;// the range is being traversed
+		}
+		return sized ? splitHalf() : splitBatch();
+	}
+
+	/**
+	 * splits the first half of days of the range, with the exact number of recurrent dates in it.
+	 */
+	private RecurrenceSpliterator splitHalf() {
+		if (size < 2 || toDay <= fromDay) {
+			return null;
+		}
+		long midDay = fromDay + (toDay - fromDay) / 2;
+		long headSize = lattice().count(fromDay, midDay + 1, size);
+		RecurrenceSpliterator head = new RecurrenceSpliterator(rule, startDay, maxCursorMoves, fromDay, midDay,
+				headSize, true);
+		fromDay = midDay + 1;
+		size -= headSize;
+		return head;
+	}
+
+	/**
+	 * splits the batch of recurrent dates from the head of the open range.
+	 */
+	private RecurrenceSpliterator splitBatch() {
+		batch = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+		RecurrenceLattice lattice = lattice();
+		long index = lattice.countBefore(fromDay, Long.MAX_VALUE) + batch;
+		long nextDay = lattice.epochDayAt(index);
+		if (nextDay == RecurrenceLattice.NOT_FOUND) {
+			return null;// the rest may be fewer than the batch
+		}
+		RecurrenceSpliterator head = new RecurrenceSpliterator(rule, startDay, maxCursorMoves, fromDay, nextDay - 1,
+				batch, true);
+		fromDay = nextDay;
+		return head;
+	}
+
+	@Override
+	public long estimateSize() {
+		return size;
+	}
+
+	@Override
+	public int characteristics() {
+		return sized ? CHARACTERISTICS | SIZED | SUBSIZED : CHARACTERISTICS;
+	}
+
+	@Override
+	public Comparator<? super Long> getComparator() {
+		return null;// in natural order
+	}
+
+	private RecurrenceLattice lattice() {
+		if (lattice == null) {
+			// not shared with the splits, which may be traversed by other threads
+			lattice = new RecurrenceLattice(rule, startDay);
+		}
+		return lattice;
+	}
+
+	private RecurrenceGenerator generator() {
+		if (generator == null) {
+			generator = rule.newGenerator();
+			generator.setMaxCursorMoves(maxCursorMoves);
+			generator.setStartEpochDay(startDay);
+			if (fromDay > startDay) {
+				generator.seek(fromDay);
+			}
+		}
+		return generator;
+	}
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.calendar.recurrence;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * The table of many recurrences in columns of primitive arrays, which finds the next recurrent date of all of them
+ * in bulk, without dereferencing any rule or validator.
+ * <p>Each rule is packed once: the frequency, the interval, the start day, the months of BYMONTH, the days of
+ * BYMONTHDAY and the ordinals of BYDAY as bits. COUNT and UNTIL are packed as the last recurrent date, which is
+ * found by {@link RecurrenceLattice}, so that no recurrent date is counted in the bulk evaluation. The days of a
+ * month are the intersection of the masks, the days of BYDAY are the ordinals of each day of week shifted to the
+ * day-of-week of the 1st and clipped to the length of month, see {@link DayOfWeekValidator}.</p>
+ * <p>{@link #nextAfter(long, long[])} and {@link #countsBetween(long, long)} evaluate the ranges of the rules in
+ * parallel by fork/join. The table is immutable, it may be shared by the threads.</p>
+ */
+public class RecurrenceTable {
+	private static final int ORDINALS = 5;// a month has 5 days of week at most
+	private static final long EVERY_DAY_OF_WEEK = (1L << EpochDays.DAYS_PER_WEEK * ORDINALS) - 1;
+	private static final long EVERY_DAY_OF_MONTH = 0xFFFFFFFEL;
+	private static final int BATCH_SIZE = 1 << 12;
+	private static final int WINDOW_MONTHS = 100 * EpochDays.MONTHS_PER_YEAR;
+	private final byte[] freqs;
+	private final int[] intervals;
+	private final long[] startDays;
+	private final long[] startUnits;// the start day, the week from Monday or the months since year 0, by freq
+	private final long[] lastDays;// the last recurrent date, by COUNT and UNTIL
+	private final int[] months;// the months of BYMONTH as bits, i.e. bit 1 is set for January
+	private final long[] daysOfMonth;// the positive days in the low 32 bits, and the negative days in the high 32
+	private final long[] firstOrdinals;// the ordinals of days of week from the 1st as bits, see DayOfWeekValidator
+	private final long[] lastOrdinals;// the ordinals of days of week from the last day of month as bits
+
+	private RecurrenceTable(int size) {
+		freqs = new byte[size];
+		intervals = new int[size];
+		startDays = new long[size];
+		startUnits = new long[size];
+		lastDays = new long[size];
+		months = new int[size];
+		daysOfMonth = new long[size];
+		firstOrdinals = new long[size];
+		lastOrdinals = new long[size];
+	}
+
+	/**
+	 * To pack the rules into a table, the rules are packed in parallel.
+	 * @param rules the rules of the recurrences
+	 * @param startEpochDays the epoch days of the recurrence start dates, in the same order as {@code rules}
+	 * @return an instance of RecurrenceTable, in which the index of each rule is the same as in {@code rules}
+	 */
+	public static RecurrenceTable of(CompiledRecurrenceRule[] rules, long[] startEpochDays) {
+		if (rules.length != startEpochDays.length) {
+			throw new IllegalArgumentException("The number of rules " + rules.length
+					+ " is not the same as the number of start dates " + startEpochDays.length);
+		}
+		RecurrenceTable table = new RecurrenceTable(rules.length);
+		IntStream.range(0, rules.length).parallel().forEach(i -> table.pack(i, rules[i], startEpochDays[i]));
+		return table;
+	}
+
+	private void pack(int index, CompiledRecurrenceRule rule, long startDay) {
+		Frequency freq = rule.getFreq();
+		freqs[index] = (byte) freq.ordinal();
+		intervals[index] = rule.getInterval();
+		startDays[index] = startDay;
+		startUnits[index] = EpochDays.unit(freq, startDay);
+		RecurrenceLattice lattice = new RecurrenceLattice(rule, startDay);
+		long lastDay = RecurrenceCalendar.lastEpochDay(rule, startDay, lattice);
+		if (lastDay == RecurrenceCalendar.UNBOUNDED) {
+			// the rule which recurs in the month of start date only is bounded as well, so that the evaluation of
+			// any other rule finds a recurrent date within a period of the lattice
+			long nextMonth = EpochDays.plusMonths(EpochDays.firstDayOfMonth(startDay), 1);
+			long count = lattice.countBefore(nextMonth, Long.MAX_VALUE);
+			if (lattice.epochDayAt(count) == RecurrenceLattice.NOT_FOUND) {
+				lastDay = count == 0 ? RecurrenceCalendar.NO_OCCURRENCE : lattice.epochDayAt(count - 1);
+			}
+		}
+		lastDays[index] = lastDay;
+		int validMonths = 0;
+		for (int month = 1; month <= EpochDays.MONTHS_PER_YEAR; month++) {
+			if (rule.getMonthValidator() == null || rule.getMonthValidator().isValidMonth(month)) {
+				validMonths |= 1 << month;
+			}
+		}
+		months[index] = validMonths;
+		DayOfMonthValidator dayOfMonthValidator = rule.getDayOfMonthValidator();
+		DayOfWeekValidator dayOfWeekValidator = rule.getDayOfWeekValidator();
+		if (dayOfMonthValidator != null) {
+			daysOfMonth[index] = dayOfMonthValidator.days();
+		} else if (freq == Frequency.MONTHLY && dayOfWeekValidator == null) {
+			daysOfMonth[index] = 1L << EpochDays.dayOfMonth(EpochDays.yearMonthDay(startDay));
+		} else {
+			daysOfMonth[index] = EVERY_DAY_OF_MONTH;
+		}
+		if (dayOfWeekValidator != null) {
+			firstOrdinals[index] = dayOfWeekValidator.ordinals(false);
+			lastOrdinals[index] = dayOfWeekValidator.ordinals(true);
+		} else if (freq == Frequency.WEEKLY && dayOfMonthValidator == null) {
+			firstOrdinals[index] = 0x1FL << (EpochDays.dayOfWeek(startDay) - 1) * ORDINALS;
+		} else {
+			firstOrdinals[index] = EVERY_DAY_OF_WEEK;
+		}
+	}
+
+	/**
+	 * @return the number of the rules
+	 */
+	public int size() {
+		return freqs.length;
+	}
+
+	/**
+	 * Finds the next recurrent date after the day of all the rules, the ranges of the rules are evaluated in
+	 * parallel by the common fork/join pool. The months after the day are decomposed once for all the rules.
+	 * @param epochDay the epoch day to find after, exclusive
+	 * @param out the epoch days of the next recurrent dates, in the same order as the rules, or
+	 *            {@link RecurrenceCalendar#NO_OCCURRENCE} if the rule has no more recurrent date
+	 */
+	public void nextAfter(long epochDay, long[] out) {
+		if (out.length < size()) {
+			throw new IllegalArgumentException("The length of out " + out.length + " is less than " + size());
+		}
+		MonthWindow window = new MonthWindow(epochDay + 1, WINDOW_MONTHS);
+		ForkJoinPool.commonPool().invoke(new NextAfterTask(epochDay, window, out, 0, size()));
+	}
+
+	/**
+	 * Finds the next recurrent date after the day of a rule.
+	 * @param index the index of the rule
+	 * @param epochDay the epoch day to find after, exclusive
+	 * @return the epoch day of the next recurrent date, or {@link RecurrenceCalendar#NO_OCCURRENCE} if the rule
+	 *         has no more recurrent date
+	 */
+	public long nextAfter(int index, long epochDay) {
+		return nextAfter(index, epochDay, MonthWindow.EMPTY);
+	}
+
+	private long nextAfter(int index, long epochDay, MonthWindow window) {
+		long lastDay = lastDays[index];
+		long day = Math.max(epochDay + 1, startDays[index]);
+		int interval = intervals[index];
+		long startUnit = startUnits[index];
+		byte freq = freqs[index];
+		int monthIndex = 0;// of the window
+		while (day <= lastDay) {
+			long firstDayOfMonth;
+			int lengthOfMonth;
+			int month;
+			int firstDayOfWeek;
+			long monthCount;// the months since year 0
+			monthIndex = window.indexOf(day, monthIndex);
+			if (monthIndex >= 0) {
+				firstDayOfMonth = window.firstDays[monthIndex];
+				lengthOfMonth = (int) (window.firstDays[monthIndex + 1] - firstDayOfMonth);
+				month = window.monthsOfYear[monthIndex];
+				firstDayOfWeek = window.firstDaysOfWeek[monthIndex];
+				monthCount = window.firstMonthCount + monthIndex;
+			} else {
+				int date = EpochDays.yearMonthDay(day);
+				month = EpochDays.month(date);
+				lengthOfMonth = EpochDays.lengthOfMonth(date);
+				firstDayOfMonth = day - EpochDays.dayOfMonth(date) + 1;
+				firstDayOfWeek = EpochDays.dayOfWeek(firstDayOfMonth);
+				monthCount = EpochDays.months(date);
+				monthIndex = 0;
+			}
+			int dayOfMonth = (int) (day - firstDayOfMonth) + 1;
+			long nextMonth = firstDayOfMonth + lengthOfMonth;
+			int validMonths = months[index];
+			if ((validMonths & (1 << month)) == 0) {
+				// skip to the next month of BYMONTH
+				int laterMonths = validMonths & (-2 << month);
+				int skip = laterMonths != 0 ? Integer.numberOfTrailingZeros(laterMonths) - month
+						: EpochDays.MONTHS_PER_YEAR - month + Integer.numberOfTrailingZeros(validMonths);
+				day = skip == 1 ? nextMonth : window.firstDayOf(monthCount + skip);
+				continue;
+			}
+			// the recurrent days of the lattice from the day in the month, and the day to continue from
+			int lattice;
+			long nextDay;
+			if (freq == 0) {// DAILY
+				long remainder = Math.floorMod(startUnit - day, (long) interval);
+				if (remainder > 0) {
+					day += remainder;
+					continue;
+				}
+				lattice = interval < DailyRecurrenceGenerator.LATTICES.length
+						? DailyRecurrenceGenerator.LATTICES[interval] << dayOfMonth
+						: 1 << dayOfMonth;
+				nextDay = nextMonth;
+			} else if (freq == 1) {// WEEKLY
+				long week = EpochDays.unit(Frequency.WEEKLY, day);
+				long remainder = Math.floorMod(startUnit - week, (long) interval);
+				long monday = week * EpochDays.DAYS_PER_WEEK - 3;
+				if (remainder > 0) {
+					day = monday + remainder * EpochDays.DAYS_PER_WEEK;
+					continue;
+				}
+				// the days from the day to the Sunday of the week
+				int sunday = (int) (monday + EpochDays.DAYS_PER_WEEK - firstDayOfMonth);
+				lattice = sunday < 31 ? (-1 << dayOfMonth) & ~(-2 << sunday) : -1 << dayOfMonth;
+				// the rest of the week is in the next month
+				nextDay = sunday > lengthOfMonth ? nextMonth : monday + (long) interval * EpochDays.DAYS_PER_WEEK;
+			} else {// MONTHLY
+				long remainder = Math.floorMod(startUnit - monthCount, (long) interval);
+				if (remainder > 0) {
+					day = window.firstDayOf(monthCount + remainder);
+					continue;
+				}
+				lattice = -1 << dayOfMonth;
+				nextDay = nextMonth;
+			}
+			int days = lattice & daysOfMonth(index, firstDayOfWeek, lengthOfMonth);
+			if (days != 0) {
+				long found = firstDayOfMonth + Integer.numberOfTrailingZeros(days) - 1;
+				return found <= lastDay ? found : RecurrenceCalendar.NO_OCCURRENCE;
+			}
+			day = nextDay;
+		}
+		return RecurrenceCalendar.NO_OCCURRENCE;
+	}
+
+	/**
+	 * Counts the rules which recur on each day of the window, e.g. the density of the next year for capacity planning.
+	 * The recurrent days of each month of a rule are evaluated at once as bits, and added to the counts of its range,
+	 * the ranges of the rules are evaluated in parallel by the common fork/join pool, and their counts are added up
+	 * when they are joined. The months of the window are decomposed once for all the rules.
+	 * @param fromEpochDay the epoch day of the first date of the window
+	 * @param toEpochDay the epoch day of the last date of the window, inclusive
+	 * @return the number of the rules which recur on each day of the window, i.e. the number on the epoch day
+	 *         {@code fromEpochDay + i} at {@code i}
+	 */
+	public int[] countsBetween(long fromEpochDay, long toEpochDay) {
+		if (toEpochDay < fromEpochDay) {
+			return new int[0];
+		}
+		if (toEpochDay - fromEpochDay >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The window from " + fromEpochDay + " to " + toEpochDay + " is too long");
+		}
+		int fromDate = EpochDays.yearMonthDay(fromEpochDay);
+		int toDate = EpochDays.yearMonthDay(toEpochDay);
+		int windowMonths = (EpochDays.year(toDate) - EpochDays.year(fromDate)) * EpochDays.MONTHS_PER_YEAR
+				+ EpochDays.month(toDate) - EpochDays.month(fromDate) + 1;
+		MonthWindow window = new MonthWindow(fromEpochDay, windowMonths);
+		return ForkJoinPool.commonPool().invoke(new CountTask(fromEpochDay, toEpochDay, window, 0, size()));
+	}
+
+	/**
+	 * to add the recurrent days of the rule in the window to the counts.
+	 */
+	private void count(int index, long fromEpochDay, long toEpochDay, MonthWindow window, int[] counts) {
+		long firstDay = Math.max(fromEpochDay, startDays[index]);
+		long lastDay = Math.min(toEpochDay, lastDays[index]);
+		if (lastDay < firstDay) {
+			return;
+		}
+		int validMonths = months[index];
+		for (int monthIndex = window.indexOf(firstDay, 0); monthIndex < window.monthsOfYear.length
+				&& window.firstDays[monthIndex] <= lastDay; monthIndex++) {
+			if ((validMonths & (1 << window.monthsOfYear[monthIndex])) == 0) {
+				continue;
+			}
+			long firstDayOfMonth = window.firstDays[monthIndex];
+			int lengthOfMonth = (int) (window.firstDays[monthIndex + 1] - firstDayOfMonth);
+			int days = latticeDays(index, firstDayOfMonth, lengthOfMonth, window.firstMonthCount + monthIndex);
+			if (days == 0) {
+				continue;
+			}
+			days &= daysOfMonth(index, window.firstDaysOfWeek[monthIndex], lengthOfMonth);
+			// the days out of the window or the recurrence in the months at both edges
+			if (firstDay > firstDayOfMonth) {
+				days &= -1 << (int) (firstDay - firstDayOfMonth + 1);
+			}
+			if (lastDay < firstDayOfMonth + lengthOfMonth - 1) {
+				days &= ~(-2 << (int) (lastDay - firstDayOfMonth + 1));
+			}
+			int offset = (int) (firstDayOfMonth - 1 - fromEpochDay);
+			for (; days != 0; days &= days - 1) {
+				counts[offset + Integer.numberOfTrailingZeros(days)]++;
+			}
+		}
+	}
+
+	/**
+	 * @return the days of the month on the interval lattice of the rule as bits, i.e. bit 1 is set for the 1st
+	 */
+	private int latticeDays(int index, long firstDayOfMonth, int lengthOfMonth, long monthCount) {
+		int interval = intervals[index];
+		long startUnit = startUnits[index];
+		if (freqs[index] == 0) {// DAILY
+			int offset = (int) Math.floorMod(startUnit - firstDayOfMonth, (long) interval);
+			if (offset >= lengthOfMonth) {
+				return 0;
+			}
+			return interval < DailyRecurrenceGenerator.LATTICES.length
+					? DailyRecurrenceGenerator.LATTICES[interval] << (offset + 1)
+					: 1 << (offset + 1);
+		} else if (freqs[index] == 1) {// WEEKLY
+			long week = EpochDays.unit(Frequency.WEEKLY, firstDayOfMonth);
+			long monday = (week + Math.floorMod(startUnit - week, (long) interval)) * EpochDays.DAYS_PER_WEEK - 3;
+			int days = 0;
+			for (; monday < firstDayOfMonth + lengthOfMonth; monday += (long) interval * EpochDays.DAYS_PER_WEEK) {
+				// the days from the Monday to the Sunday, the days before the 1st are shifted out
+				int mondayOfMonth = (int) (monday - firstDayOfMonth) + 1;
+				int sundayOfMonth = mondayOfMonth + EpochDays.DAYS_PER_WEEK - 1;
+				days |= (-1 << Math.max(mondayOfMonth, 1)) & (sundayOfMonth < 31 ? ~(-2 << sundayOfMonth) : -1);
+			}
+			return days;
+		}
+		// MONTHLY
+		return Math.floorMod(monthCount - startUnit, (long) interval) == 0 ? -2 : 0;
+	}
+
+	/**
+	 * @return the days of the month which match BYMONTHDAY and BYDAY as bits, i.e. bit 1 is set for the 1st
+	 */
+	private int daysOfMonth(int index, int firstDayOfWeek, int lengthOfMonth) {
+		long monthDays = daysOfMonth[index];
+		// the negative day -n is reversed to the bit of lengthOfMonth + 1 - n
+		int days = ((int) monthDays | Integer.reverse((int) (monthDays >>> 32)) >>> (31 - lengthOfMonth) << 1)
+				& (-2 >>> (31 - lengthOfMonth));
+		long first = firstOrdinals[index];
+		long last = lastOrdinals[index];
+		if (first == EVERY_DAY_OF_WEEK || days == 0) {
+			return days;
+		}
+		int ordinalDays = 0;
+		// only the days of week which have any ordinal
+		for (long ordinals = first | last; ordinals != 0;) {
+			int dayOfWeek = Long.numberOfTrailingZeros(ordinals) / ORDINALS;
+			int shift = dayOfWeek * ORDINALS;
+			ordinalDays |= DayOfWeekValidator.ordinalDays(firstDayOfWeek, lengthOfMonth, dayOfWeek + 1,
+					(int) (first >>> shift & 0x1F), false)
+					| DayOfWeekValidator.ordinalDays(firstDayOfWeek, lengthOfMonth, dayOfWeek + 1,
+							(int) (last >>> shift & 0x1F), true);
+			ordinals &= ~(0x1FL << shift);
+		}
+		return days & ordinalDays;
+	}
+
+	/**
+	 * The evaluation of a range of the rules, which is split in halves until it is small enough.
+	 */
+	private final class NextAfterTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final long epochDay;
+		private final MonthWindow window;
+		private final long[] out;
+		private final int from;
+		private final int to;
+
+		NextAfterTask(long epochDay, MonthWindow window, long[] out, int from, int to) {
+			this.epochDay = epochDay;
+			this.window = window;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				for (int i = from; i < to; i++) {
+					out[i] = nextAfter(i, epochDay, window);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new NextAfterTask(epochDay, window, out, from, mid),
+					new NextAfterTask(epochDay, window, out, mid, to));
+		}
+	}
+
+	/**
+	 * The counts of a range of the rules, which is split in halves until it is small enough, the counts of each half
+	 * are added up when it is joined.
+	 */
+	private final class CountTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private final long fromEpochDay;
+		private final long toEpochDay;
+		private final MonthWindow window;
+		private final int from;
+		private final int to;
+
+		CountTask(long fromEpochDay, long toEpochDay, MonthWindow window, int from, int to) {
+			this.fromEpochDay = fromEpochDay;
+			this.toEpochDay = toEpochDay;
+			this.window = window;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from <= BATCH_SIZE) {
+				int[] counts = new int[(int) (toEpochDay - fromEpochDay + 1)];
+				for (int i = from; i < to; i++) {
+					count(i, fromEpochDay, toEpochDay, window, counts);
+				}
+				return counts;
+			}
+			int mid = (from + to) >>> 1;
+			CountTask head = new CountTask(fromEpochDay, toEpochDay, window, from, mid);
+			head.fork();
+			int[] counts = new CountTask(fromEpochDay, toEpochDay, window, mid, to).compute();
+			int[] headCounts = head.join();
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += headCounts[i];
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * The months from the month of a day, which are decomposed once, and shared by the evaluation of all the rules.
+	 * The days after the window are decomposed by {@link EpochDays}.
+	 */
+	private static final class MonthWindow {
+		static final MonthWindow EMPTY = new MonthWindow(0, 0);
+		final long firstMonthCount;// the months since year 0 of the first month
+		final long[] firstDays;// the first days of the months, and the day after the last month
+		final byte[] monthsOfYear;
+		final byte[] firstDaysOfWeek;
+
+		MonthWindow(long epochDay, int size) {
+			int date = EpochDays.yearMonthDay(epochDay);
+			firstMonthCount = EpochDays.months(date);
+			firstDays = new long[size + 1];
+			monthsOfYear = new byte[size];
+			firstDaysOfWeek = new byte[size];
+			firstDays[0] = EpochDays.firstDayOfMonth(epochDay);
+			for (int i = 0; i < size; i++) {
+				int month = (int) Math.floorMod(firstMonthCount + i, EpochDays.MONTHS_PER_YEAR) + 1;
+				int year = (int) Math.floorDiv(firstMonthCount + i, EpochDays.MONTHS_PER_YEAR);
+				monthsOfYear[i] = (byte) month;
+				firstDaysOfWeek[i] = (byte) EpochDays.dayOfWeek(firstDays[i]);
+				firstDays[i + 1] = firstDays[i] + EpochDays.lengthOfMonth(year, month);
+			}
+		}
+
+		/**
+		 * @param day the day to find
+		 * @param from the index of the month to find from, which is on or before the month of the day
+		 * @return the index of the month of the day, or -1 if it is before or after the window
+		 */
+		int indexOf(long day, int from) {
+			if (day < firstDays[0] || day >= firstDays[monthsOfYear.length]) {
+				return -1;
+			}
+			int index = from;
+			while (day >= firstDays[index + 1]) {
+				index++;
+			}
+			return index;
+		}
+
+		/**
+		 * @return the first day of the month of the months since year 0
+		 */
+		long firstDayOf(long monthCount) {
+			long index = monthCount - firstMonthCount;
+			if (index >= 0 && index < monthsOfYear.length) {
+				return firstDays[(int) index];
+			}
+			return EpochDays.of((int) Math.floorDiv(monthCount, EpochDays.MONTHS_PER_YEAR),
+					(int) Math.floorMod(monthCount, EpochDays.MONTHS_PER_YEAR) + 1, 1);
+		}
+	}
+}
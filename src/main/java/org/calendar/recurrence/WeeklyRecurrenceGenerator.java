@@ -15,115 +15,131 @@
  */
 package org.calendar.recurrence;
 
-import static java.time.DayOfWeek.SUNDAY;
-
-import java.time.DayOfWeek;
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
 /**
+ * The WEEKLY generator, which steps over the recurrent weeks only. The weeks are aligned to the Monday of the
+ * week of start day, the days of week of each recurrent week are taken from a 7-bit mask in order, and then the
+ * cursor jumps to the Monday of the week {@code interval} weeks later in one step.
+ * <p>BYMONTH and BYMONTHDAY, as well as the ordinal days of week e.g. {@code 2MO}, filter the days of the mask,
+ * and the weeks of the months excluded by BYMONTH are skipped at once.</p>
  * 
  * @author <a href="mailto:raindy.ye@outlook.com">Raindy, Ye</a>
  *
  */
 class WeeklyRecurrenceGenerator implements RecurrenceGenerator {
+	private static final int ALL_DAYS_OF_WEEK = 0x7F;
 	private int interval = 1;
-	private LocalDate dateCursor;
+	private long startDay;
+	private long startMonday;
+	private long weekCursor;// the Monday of current recurrent week
+	private long dayCursor;
+	private int daysOfWeek;// the days of week as bits, i.e. bit 0 is set for Monday
+	private int maxCursorMoves = DEFAULT_MAX_CURSOR_MOVES;
+	private final long untilDay;
+	private final CompiledRecurrenceRule rule;
 	private DayOfWeekValidator dayOfWeekValidator;
 	private DayOfMonthValidator dayOfMonthValidator;
 	private MonthValidator monthValidator;
+	private final boolean filtered;
 
-	WeeklyRecurrenceGenerator(RecurrenceRule rule) {
+	WeeklyRecurrenceGenerator(CompiledRecurrenceRule rule) {
+		this.rule = rule;
+		this.untilDay = rule.getUntilEpochDay();
 		this.dayOfWeekValidator = rule.getDayOfWeekValidator();
 		this.dayOfMonthValidator = rule.getDayOfMonthValidator();
 		this.monthValidator = rule.getMonthValidator();
+		this.filtered = dayOfMonthValidator != null || monthValidator != null
+				|| (dayOfWeekValidator != null && dayOfWeekValidator.hasOrdinalDays());
 	}
 
-	public LocalDate next() {
-		while (!isValid()) {
-			moveCursor();
+	public long nextEpochDay() {
+		int moves = 0;
+		while (true) {
+			// the days of current week from the cursor
+			int days = daysOfWeek & (ALL_DAYS_OF_WEEK << (int) (dayCursor - weekCursor));
+			while (days != 0) {
+				long epochDay = weekCursor + Integer.numberOfTrailingZeros(days);
+				if (!filtered || isValid(epochDay)) {
+					dayCursor = epochDay + 1;
+					return epochDay;
+				}
+				days &= days - 1;
+			}
+			if (weekCursor + 6 >= untilDay) {
+				return NO_MORE;// the rest of the weeks are after UNTIL
+			}
+			if (++moves > maxCursorMoves) {
+				throw InfiniteLoopException.of(rule, dayCursor, moves);
+			}
+			moveToNextWeek();
 		}
-
-		LocalDate generatedDate = dateCursor;
-		moveCursor();
-		return generatedDate;
 	}
 
-	private void moveCursor() {
-		// if none of verifier then jump by interval directly
-		if (dayOfWeekValidator == null && dayOfMonthValidator == null) {
-			dateCursor = dateCursor.plusWeeks(interval);
+	private void moveToNextWeek() {
+		long nextWeek = weekCursor + 7L * interval;
+		if (monthValidator != null && !isMonthValid(nextWeek) && !isMonthValid(nextWeek + 6)) {
+			// jump over the invalid months fast, the whole week is in them
+			moveToRecurrentWeek(monthValidator.nextClosestValidDay(nextWeek));
 			return;
 		}
-		// if at Sunday, jump by interval directly
-		if (dateCursor.getDayOfWeek().equals(SUNDAY)) {
-			int offset = (interval - 1) * 7 + 1;
-			dateCursor = dateCursor.plusDays(offset);
-			return;
-		}
-
-		if (!isMonthValid()) {
-			LocalDate closestValidDate = monthValidator.nextClosestValidDate(dateCursor);
-			moveCloseTo(closestValidDate);
-			return;
-		}
-		if (!isDayOfMonthValid()) {
-			LocalDate closestValidDate = dayOfMonthValidator.nextClosestValidDate(dateCursor);
-			moveCloseTo(closestValidDate);
-			return;
-		}
-		if (!isDayOfWeekValid()) {
-			LocalDate closestValidDate = dayOfWeekValidator.nextClosestValidDate(dateCursor);
-			moveCloseTo(closestValidDate);
-			return;
-		}
-		dateCursor = dateCursor.plusDays(1);
+		weekCursor = nextWeek;
+		dayCursor = nextWeek;
 	}
 
-	private void moveCloseTo(LocalDate closestValidDate) {
-		if (closestValidDate.isEqual(dateCursor)) {
-			dateCursor = dateCursor.plusDays(1);
-			return;
-		}
-		if (interval > 1) {
-			int intervalDays = (int) ChronoUnit.DAYS.between(dateCursor, closestValidDate);
-			int intervalWeeks = intervalDays / 7;
-			int remainderWeeks = intervalWeeks % interval;
-			if (remainderWeeks != 0) {
-				int remainderDays = intervalDays % 7;
-				if (dateCursor.getDayOfWeek().getValue() + remainderDays > 7) {
-					//in nominal it cross a week
-					remainderWeeks++;
-				}
-				dateCursor = closestValidDate.plusWeeks(interval - remainderWeeks);
-				dateCursor = dateCursor.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
-			} else {
-				dateCursor = closestValidDate;
-			}
+	/**
+	 * move to the day if its week is recurrent, or to the Monday of next recurrent week.
+	 * the recurrent weeks are aligned to the week of start day.
+	 */
+	private void moveToRecurrentWeek(long epochDay) {
+		long weeks = Math.floorDiv(epochDay - startMonday, 7);
+		long remainderWeeks = Math.floorMod(weeks, (long) interval);
+		if (remainderWeeks == 0) {
+			weekCursor = startMonday + weeks * 7;
+			dayCursor = Math.max(epochDay, startDay);
 		} else {
-			dateCursor = closestValidDate;
+			weekCursor = startMonday + (weeks + interval - remainderWeeks) * 7;
+			dayCursor = weekCursor;
 		}
 	}
 
-	private boolean isValid() {
-		return isDayOfWeekValid() && isDayOfMonthValid() && isMonthValid();
+	private boolean isValid(long epochDay) {
+		int date = EpochDays.yearMonthDay(epochDay);
+		int dayOfMonth = EpochDays.dayOfMonth(date);
+		int lengthOfMonth = EpochDays.lengthOfMonth(date);
+		return (monthValidator == null || monthValidator.isValidMonth(EpochDays.month(date)))
+				&& (dayOfMonthValidator == null || dayOfMonthValidator.isValid(dayOfMonth, lengthOfMonth))
+				&& (dayOfWeekValidator == null
+						|| dayOfWeekValidator.isValid(EpochDays.dayOfWeek(epochDay), dayOfMonth, lengthOfMonth));
 	}
 
-	private boolean isDayOfWeekValid() {
-		return dayOfWeekValidator == null || dayOfWeekValidator.isValid(dateCursor);
+	private boolean isMonthValid(long epochDay) {
+		return monthValidator.isValidMonth(EpochDays.month(EpochDays.yearMonthDay(epochDay)));
 	}
 
-	private boolean isDayOfMonthValid() {
-		return this.dayOfMonthValidator == null || this.dayOfMonthValidator.isValid(dateCursor);
+	@Override
+	public void setMaxCursorMoves(int maxCursorMoves) {
+		this.maxCursorMoves = maxCursorMoves;
 	}
 
-	private boolean isMonthValid() {
-		return monthValidator == null || monthValidator.isValid(dateCursor);
+	@Override
+	public void setStartEpochDay(long startEpochDay) {
+		this.startDay = startEpochDay;
+		int startDayOfWeek = EpochDays.dayOfWeek(startEpochDay);
+		this.startMonday = startEpochDay - startDayOfWeek + 1;
+		if (dayOfWeekValidator != null) {
+			this.daysOfWeek = dayOfWeekValidator.daysOfWeek();
+		} else if (dayOfMonthValidator != null) {
+			this.daysOfWeek = ALL_DAYS_OF_WEEK;
+		} else {
+			// only the day of week of start day is recurrent
+			this.daysOfWeek = 1 << (startDayOfWeek - 1);
+		}
+		this.weekCursor = startMonday;
+		this.dayCursor = startEpochDay;
 	}
 
 	@Override
-	public void setStartDate(LocalDate startDate) {
-		this.dateCursor = startDate;
+	public void seek(long fromEpochDay) {
+		moveToRecurrentWeek(fromEpochDay);
 	}
 
 	@Override
@@ -0,0 +1,107 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class AgendaRecurrenceTest {
+	private static final String[] RULES = { "RRULE:FREQ=DAILY;INTERVAL=3", "RRULE:FREQ=WEEKLY;BYDAY=MO,FR;COUNT=40",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=31", "RRULE:FREQ=DAILY;UNTIL=20180301T000000Z",
+			"RRULE:FREQ=MONTHLY;BYDAY=-1FR" };
+
+	@Test
+	@DisplayName("the agenda is the same as the sorted recurrent dates of all series")
+	void test_agenda_same_as_sorted_iteration() {
+		LocalDate until = LocalDate.of(2019, 1, 1);
+		List<RecurrenceCalendar> calendars = new ArrayList<>();
+		List<long[]> expected = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			LocalDate start = LocalDate.of(2018, 1, 1).plusDays(i * 7 % 300);
+			String rrule = RULES[i % RULES.length];
+			calendars.add(RecurrenceCalendar.getInstance(start, rrule));
+			for (LocalDate date : RecurrenceCalendar.getInstance(start, rrule).between(start, until)) {
+				expected.add(new long[] { date.toEpochDay(), i });
+			}
+		}
+		expected.sort(Comparator.<long[]> comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]));
+		RecurrenceAgenda agenda = RecurrenceAgenda.getInstance(calendars);
+		agenda.setUntil(until);
+		List<long[]> actual = new ArrayList<>();
+		while (agenda.hasNext()) {
+			actual.add(new long[] { agenda.nextLong(), agenda.seriesId() });
+		}
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i)[0], actual.get(i)[0], "epoch day at " + i);
+			assertEquals(expected.get(i)[1], actual.get(i)[1], "series at " + i);
+		}
+	}
+
+	@Test
+	@DisplayName("the agenda ends after the limit")
+	void test_agenda_limit() {
+		RecurrenceAgenda agenda = RecurrenceAgenda.getInstance(
+				RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1), "RRULE:FREQ=DAILY"),
+				RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1), "RRULE:FREQ=WEEKLY"),
+				RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 3), "RRULE:FREQ=MONTHLY"));
+		agenda.setLimit(5);
+		assertAll(() -> assertEquals(LocalDate.of(2018, 1, 1), agenda.nextDate()),
+				() -> assertEquals(0, agenda.seriesId()),
+				() -> assertEquals(LocalDate.of(2018, 1, 1), agenda.nextDate()),
+				() -> assertEquals(1, agenda.seriesId()),
+				() -> assertEquals(LocalDate.of(2018, 1, 2), agenda.nextDate()),
+				() -> assertEquals(LocalDate.of(2018, 1, 3), agenda.nextDate()),
+				() -> assertEquals(0, agenda.seriesId()),
+				() -> assertEquals(LocalDate.of(2018, 1, 3), agenda.nextDate()),
+				() -> assertEquals(2, agenda.seriesId()),
+				() -> assertFalse(agenda.hasNext()),
+				() -> assertThrows(NoSuchElementException.class, agenda::nextLong));
+	}
+
+	@Test
+	@DisplayName("the series without more recurrent date are dropped")
+	void test_agenda_exhausted_series() {
+		RecurrenceCalendar exhausted = RecurrenceCalendar.getInstance(LocalDate.of(2014, 3, 4),
+				"RRULE:FREQ=MONTHLY;INTERVAL=6;BYMONTH=5,7");
+		RecurrenceCalendar sparse = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1),
+				"RRULE:FREQ=DAILY;INTERVAL=2;BYMONTH=2;BYMONTHDAY=29;BYDAY=MO");
+		// the 29th of February on Monday is far after the agenda, which is never reached by the cursor moves
+		sparse.setMaxCursorMoves(10);
+		RecurrenceAgenda agenda = RecurrenceAgenda.getInstance(exhausted, sparse,
+				RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1), "RRULE:FREQ=WEEKLY;BYDAY=MO;COUNT=3"));
+		agenda.setUntil(LocalDate.of(2018, 12, 31));
+		List<LocalDate> dates = new ArrayList<>();
+		while (agenda.hasNext()) {
+			dates.add(agenda.nextDate());
+			assertEquals(2, agenda.seriesId());
+		}
+		assertEquals(Arrays.asList(LocalDate.of(2018, 1, 1), LocalDate.of(2018, 1, 8), LocalDate.of(2018, 1, 15)),
+				dates);
+	}
+
+	@Test
+	@DisplayName("throw exception when the maximum cursor moves of a calendar are spent")
+	void test_agenda_infinite_loop() {
+		RecurrenceCalendar sparse = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1),
+				"RRULE:FREQ=DAILY;INTERVAL=2;BYMONTH=2;BYMONTHDAY=29;BYDAY=MO");
+		// the 29th of February on Monday is in 2044, which is not reached by the cursor moves
+		sparse.setMaxCursorMoves(10);
+		RecurrenceAgenda agenda = RecurrenceAgenda.getInstance(
+				RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1), "RRULE:FREQ=WEEKLY;BYDAY=MO;COUNT=3"), sparse);
+		assertThrows(InfiniteLoopException.class, agenda::hasNext);
+	}
+}
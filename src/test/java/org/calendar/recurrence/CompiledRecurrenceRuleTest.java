@@ -0,0 +1,91 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class CompiledRecurrenceRuleTest {
+	private static final LocalDate START = LocalDate.of(2019, 1, 1);
+
+	@Test
+	@DisplayName("build the same rule as parsed")
+	void test_builder() {
+		CompiledRecurrenceRule built = CompiledRecurrenceRule.builder(Frequency.MONTHLY).interval(2).count(5)
+				.until(LocalDate.of(2020, 12, 31)).byMonth("1,6").byMonthDay("1,-1").byDay("MO,-1FR").build();
+		CompiledRecurrenceRule compiled = RecurrenceRule
+				.getInstance("RRULE:FREQ=MONTHLY;INTERVAL=2;COUNT=5;UNTIL=20201231T093000Z;BYMONTH=1,6;BYMONTHDAY=1,-1;BYDAY=MO,-1FR")
+				.compile();
+		assertAll(() -> assertEquals(compiled, built), () -> assertEquals(compiled.hashCode(), built.hashCode()),
+				() -> assertEquals(LocalDate.of(2020, 12, 31).toEpochDay(), built.getUntilEpochDay()),
+				() -> assertEquals(
+						"RRULE:FREQ=MONTHLY;INTERVAL=2;COUNT=5;UNTIL=20201231T000000Z;BYMONTH=1,6;BYMONTHDAY=1,-1;BYDAY=MO,-1FR",
+						built.toString()),
+				() -> assertEquals(built, RecurrenceRule.getInstance(built.toString()).compile()),
+				() -> assertEquals(Long.MAX_VALUE, CompiledRecurrenceRule.builder(Frequency.DAILY).build().getUntilEpochDay()));
+	}
+
+	@Test
+	@DisplayName("throw exception when build the rule which never recurs")
+	void test_builder_never_recurs() {
+		assertThrows(RRuleException.class,
+				() -> CompiledRecurrenceRule.builder(Frequency.DAILY).byMonth("4").byMonthDay("31").build());
+	}
+
+	@Test
+	@DisplayName("throw exception when build the rule with invalid interval or count")
+	void test_builder_invalid_interval_count() {
+		assertAll(
+				() -> assertThrows(RRuleException.class,
+						() -> CompiledRecurrenceRule.builder(Frequency.DAILY).interval(0).build()),
+				() -> assertThrows(RRuleException.class,
+						() -> CompiledRecurrenceRule.builder(Frequency.WEEKLY).interval(-2).build()),
+				() -> assertThrows(RRuleException.class,
+						() -> CompiledRecurrenceRule.builder(Frequency.MONTHLY).count(-1).build()));
+	}
+
+	@Test
+	@DisplayName("compile again after the rule is changed")
+	void test_compile_invalidated_by_setters() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=DAILY;COUNT=3");
+		CompiledRecurrenceRule compiled = rule.compile();
+		assertSame(compiled, rule.compile());
+		rule.setInterval(2);
+		CompiledRecurrenceRule recompiled = rule.compile();
+		assertAll(() -> assertNotSame(compiled, recompiled), () -> assertEquals(1, compiled.getInterval()),
+				() -> assertEquals(2, recompiled.getInterval()),
+				() -> assertEquals(LocalDate.of(2019, 1, 5),
+						RecurrenceCalendar.getInstance(START, rule).between(START, START.plusDays(10)).get(2)));
+	}
+
+	@Test
+	@DisplayName("expand the same compiled rule by threads")
+	void test_shared_by_threads() throws Exception {
+		CompiledRecurrenceRule rule = RecurrenceRule
+				.getInstance("RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,-1FR;UNTIL=20291231T000000Z").compile();
+		List<LocalDate> expected = RecurrenceCalendar.getInstance(START, rule).between(START, LocalDate.of(2030, 1, 1));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<List<LocalDate>>> futures = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			futures.add(executor.submit(() -> RecurrenceCalendar.getInstance(START, rule).between(START, LocalDate.of(2030, 1, 1))));
+		}
+		for (Future<List<LocalDate>> future : futures) {
+			assertEquals(expected, future.get());
+		}
+		executor.shutdown();
+	}
+}
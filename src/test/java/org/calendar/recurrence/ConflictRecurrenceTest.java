@@ -0,0 +1,85 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class ConflictRecurrenceTest {
+	private static final LocalDate START = LocalDate.of(2012, 3, 14);
+	private static final String[] RULES = { "RRULE:FREQ=DAILY;INTERVAL=3", "RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE",
+			"RRULE:FREQ=WEEKLY;COUNT=30", "RRULE:FREQ=MONTHLY;BYDAY=1MO,3WE", "RRULE:FREQ=MONTHLY;INTERVAL=2",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=-1,15;UNTIL=20140101T000000Z", "RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29" };
+
+	@Test
+	@DisplayName("the conflicts are the same as the common recurrent dates of both iterations")
+	void test_conflicts_same_as_iteration() {
+		LocalDate from = LocalDate.of(2012, 5, 1);
+		LocalDate to = LocalDate.of(2016, 12, 31);
+		for (int i = 0; i < RULES.length; i++) {
+			for (int j = 0; j < RULES.length; j++) {
+				LocalDate otherStart = START.plusDays(j * 10);
+				List<LocalDate> expected = new ArrayList<>(
+						RecurrenceCalendar.getInstance(START, RULES[i]).between(from, to));
+				expected.retainAll(RecurrenceCalendar.getInstance(otherStart, RULES[j]).between(from, to));
+				RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(START, RULES[i]);
+				RecurrenceCalendar other = RecurrenceCalendar.getInstance(otherStart, RULES[j]);
+				String message = RULES[i] + " and " + RULES[j];
+				assertAll(() -> assertEquals(expected, calendar.conflicts(other, from, to, Integer.MAX_VALUE), message),
+						() -> assertEquals(expected.subList(0, Math.min(3, expected.size())),
+								calendar.conflicts(other, from, to, 3), message),
+						() -> assertEquals(expected.size(), calendar.countConflicts(other, from, to), message));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("the first conflict is found from both start dates")
+	void test_first_conflict() {
+		RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(START, "RRULE:FREQ=DAILY;INTERVAL=3");
+		assertAll(
+				() -> assertEquals(Optional.of(LocalDate.of(2012, 3, 23)), calendar
+						.firstConflict(RecurrenceCalendar.getInstance(START, "RRULE:FREQ=WEEKLY;BYDAY=FR"))),
+				() -> assertEquals(Optional.of(LocalDate.of(2012, 3, 29)), calendar.firstConflict(
+						RecurrenceCalendar.getInstance(START, "RRULE:FREQ=MONTHLY;BYMONTHDAY=29"))),
+				() -> assertEquals(Optional.of(LocalDate.of(2012, 4, 16)), calendar.firstConflict(
+						RecurrenceCalendar.getInstance(START.plusDays(30), "RRULE:FREQ=WEEKLY;BYDAY=MO"))),
+				() -> assertEquals(Optional.of(LocalDate.of(2261, 1, 28)),
+						RecurrenceCalendar.getInstance(START, "RRULE:FREQ=DAILY;INTERVAL=100;BYMONTH=1").firstConflict(
+								RecurrenceCalendar.getInstance(START, "RRULE:FREQ=DAILY;INTERVAL=101;BYMONTH=1"))));
+	}
+
+	@Test
+	@DisplayName("the series which never occur on the same date have no conflict")
+	void test_no_conflict() {
+		LocalDate to = LocalDate.of(2112, 3, 14);
+		for (String[] rules : Arrays.asList(
+				new String[] { "RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE", "RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=TU" },
+				new String[] { "RRULE:FREQ=DAILY;INTERVAL=2", "RRULE:FREQ=DAILY;INTERVAL=4;BYDAY=TH" },
+				new String[] { "RRULE:FREQ=MONTHLY;INTERVAL=2", "RRULE:FREQ=MONTHLY;INTERVAL=4;BYMONTHDAY=14" },
+				new String[] { "RRULE:FREQ=WEEKLY;BYDAY=SA,SU", "RRULE:FREQ=DAILY;BYDAY=MO,TU,WE,TH,FR" },
+				new String[] { "RRULE:FREQ=DAILY;INTERVAL=100;BYMONTH=1", "RRULE:FREQ=DAILY;INTERVAL=101;BYMONTH=7" },
+				new String[] { "RRULE:FREQ=DAILY;INTERVAL=9973;BYMONTHDAY=5",
+						"RRULE:FREQ=DAILY;INTERVAL=9967;BYMONTHDAY=6" },
+				new String[] { "RRULE:FREQ=MONTHLY;INTERVAL=12", "RRULE:FREQ=DAILY;BYMONTH=7" },
+				new String[] { "RRULE:FREQ=DAILY;COUNT=10", "RRULE:FREQ=WEEKLY;BYDAY=SU;UNTIL=20120330T000000Z" })) {
+			RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(START, rules[0]);
+			RecurrenceCalendar other = RecurrenceCalendar.getInstance(START.plusMonths(1), rules[1]);
+			String message = rules[0] + " and " + rules[1];
+			assertAll(() -> assertEquals(Optional.empty(), calendar.firstConflict(other), message),
+					() -> assertEquals(Collections.emptyList(), calendar.conflicts(other, START, to, 10), message),
+					() -> assertEquals(0, calendar.countConflicts(other, START, to), message));
+		}
+	}
+}
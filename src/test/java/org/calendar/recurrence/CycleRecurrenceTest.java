@@ -0,0 +1,81 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class CycleRecurrenceTest {
+
+	@DisplayName("the bitmap is the same as the validators in and out of the cycle")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY;BYDAY=MO,-1FR;BYMONTHDAY=1,13,-1",
+			"RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29", "RRULE:FREQ=DAILY;BYMONTH=3,12;BYDAY=2SU,-1SA" })
+	void test_bitmap_same_as_validators(String rrule) {
+		RecurrenceRule rule = RecurrenceRule.getInstance(rrule);
+		CycleBitmap bitmap = rule.compile().cycleBitmap();
+		for (LocalDate date = LocalDate.of(1900, 1, 1); date.getYear() < 2500; date = date.plusDays(1)) {
+			LocalDate day = date;
+			assertEquals(ReferenceRecurrence.matches(rule, date), bitmap.contains(date.toEpochDay()), () -> rrule + " at " + day);
+		}
+	}
+
+	@DisplayName("the recurrent dates are the same as the reference expansion")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY;BYDAY=MO,WE", "RRULE:FREQ=DAILY;INTERVAL=3;BYDAY=SU;BYMONTH=12",
+			"RRULE:FREQ=DAILY;INTERVAL=7;BYMONTHDAY=1,-1", "RRULE:FREQ=DAILY;INTERVAL=21;BYDAY=1MO,-1FR",
+			"RRULE:FREQ=DAILY;INTERVAL=63;BYMONTH=1,7", "RRULE:FREQ=DAILY;INTERVAL=773;BYDAY=TU,WE,TH",
+			"RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29;COUNT=4" })
+	void test_same_as_reference(String rrule) {
+		RecurrenceRule rule = RecurrenceRule.getInstance(rrule);
+		assertEquals(CycleRecurrenceGenerator.class, rule.compile().newGenerator().getClass());
+		// across the end of the cycle at 2369-12-31
+		for (LocalDate start : new LocalDate[] { LocalDate.of(2012, 3, 14), LocalDate.of(2365, 11, 30) }) {
+			List<LocalDate> expected = ReferenceRecurrence.expand(rule, start, start.plusYears(20));
+			RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, rule);
+			List<LocalDate> actual = new ArrayList<>();
+			while (actual.size() < expected.size() && recurrence.hasNext()) {
+				actual.add(recurrence.next());
+			}
+			assertEquals(expected, actual, rrule + " from " + start);
+		}
+	}
+
+	@Test
+	@DisplayName("share the bitmap of the same compiled rule")
+	void test_bitmap_shared() {
+		CompiledRecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=DAILY;BYDAY=MO").compile();
+		assertAll(() -> assertSame(rule.cycleBitmap(), rule.cycleBitmap()),
+				() -> assertEquals(DailyRecurrenceGenerator.class,
+						RecurrenceRule.getInstance("RRULE:FREQ=DAILY;INTERVAL=2;BYDAY=MO").compile().newGenerator().getClass()),
+				() -> assertEquals(DailyRecurrenceGenerator.class,
+						RecurrenceRule.getInstance("RRULE:FREQ=DAILY").compile().newGenerator().getClass()));
+	}
+
+	@Test
+	@DisplayName("no more recurrence if the lattice never matches in the whole cycle")
+	void test_lattice_never_matches() {
+		// every 7 days from a Tuesday is never Monday
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2019, 1, 1),
+				"RRULE:FREQ=DAILY;INTERVAL=7;BYDAY=MO");
+		RecurrenceCalendar limited = RecurrenceCalendar.getInstance(LocalDate.of(2019, 1, 1),
+				"RRULE:FREQ=DAILY;INTERVAL=7;BYDAY=MO");
+		// the cursor moves are too few to scan the whole cycle
+		limited.setMaxCursorMoves(10);
+		assertAll(() -> assertFalse(recurrence.hasNext()),
+				() -> assertThrows(InfiniteLoopException.class, () -> limited.next()));
+	}
+}
@@ -193,4 +193,43 @@ class DailyRecurrenceTest {
 				() -> assertEquals(LocalDate.of(2018, 1, 29), iter.next()),
 				() -> assertEquals(LocalDate.of(2019, 1, 14), iter.next()));
 	}
+
+	@Test
+	@DisplayName("every 2 days in February on the 29th")
+	void test_Daily_every_2_days_in_February_on_the_29th() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29;INTERVAL=2;count=3");
+		LocalDate start = LocalDate.of(2018, 1, 1);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, rule);
+		List<LocalDate> recurDates = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			LocalDate date = recurrence.next();
+			recurDates.add(date);
+		}
+		Iterator<LocalDate> iter = recurDates.iterator();
+		assertAll(() -> assertEquals(3, recurDates.size()),
+				() -> assertEquals(LocalDate.of(2024, 2, 29), iter.next()),
+				() -> assertEquals(LocalDate.of(2032, 2, 29), iter.next()),
+				() -> assertEquals(LocalDate.of(2040, 2, 29), iter.next()));
+	}
+
+	@Test
+	@DisplayName("every 2 days in December on Sunday, month by month")
+	void test_Daily_every_2_days_in_December_on_Sunday() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=DAILY;BYMONTH=12;BYDAY=SU;INTERVAL=2;count=4");
+		LocalDate start = LocalDate.of(2018, 1, 1);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, rule);
+		// to the next month, and over the invalid months to December
+		recurrence.setMaxCursorMoves(2);
+		List<LocalDate> recurDates = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			LocalDate date = recurrence.next();
+			recurDates.add(date);
+		}
+		Iterator<LocalDate> iter = recurDates.iterator();
+		assertAll(() -> assertEquals(4, recurDates.size()),
+				() -> assertEquals(LocalDate.of(2018, 12, 9), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 12, 23), iter.next()),
+				() -> assertEquals(LocalDate.of(2019, 12, 8), iter.next()),
+				() -> assertEquals(LocalDate.of(2019, 12, 22), iter.next()));
+	}
 }
@@ -0,0 +1,87 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class EpochDayRecurrenceTest {
+
+	@Test
+	@DisplayName("epoch day arithmetic is the same as LocalDate")
+	void test_epoch_days_same_as_LocalDate() {
+		for (long epochDay = LocalDate.of(1599, 12, 1).toEpochDay(); epochDay < LocalDate.of(2401, 3, 1).toEpochDay(); epochDay++) {
+			LocalDate date = LocalDate.ofEpochDay(epochDay);
+			int yearMonthDay = EpochDays.yearMonthDay(epochDay);
+			assertEquals(date.getYear(), EpochDays.year(yearMonthDay));
+			assertEquals(date.getMonthValue(), EpochDays.month(yearMonthDay));
+			assertEquals(date.getDayOfMonth(), EpochDays.dayOfMonth(yearMonthDay));
+			assertEquals(date.getDayOfWeek().getValue(), EpochDays.dayOfWeek(epochDay));
+			assertEquals(date.lengthOfMonth(), EpochDays.lengthOfMonth(yearMonthDay));
+			assertEquals(epochDay, EpochDays.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+		}
+		LocalDate date = LocalDate.of(2019, 1, 31);
+		assertAll(() -> assertEquals(date.plusMonths(1).toEpochDay(), EpochDays.plusMonths(date.toEpochDay(), 1)),
+				() -> assertEquals(date.plusMonths(-13).toEpochDay(), EpochDays.plusMonths(date.toEpochDay(), -13)),
+				() -> assertEquals(date.withDayOfMonth(1).toEpochDay(), EpochDays.firstDayOfMonth(date.toEpochDay())));
+	}
+
+	@DisplayName("the epoch days are the same as the recurrent dates")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY;INTERVAL=3;BYDAY=MO,WE;COUNT=20",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,SU;COUNT=20",
+			"RRULE:FREQ=MONTHLY;BYDAY=1MO,-1FR;COUNT=20",
+			"RRULE:FREQ=MONTHLY;INTERVAL=2;BYMONTHDAY=-1,-15;UNTIL=20200101T000000Z" })
+	void test_epoch_days_same_as_recurrent_dates(String rrule) {
+		LocalDate start = LocalDate.of(2018, 1, 1);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, rrule);
+		List<Long> expected = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			expected.add(recurrence.next().toEpochDay());
+		}
+		recurrence = RecurrenceCalendar.getInstance(start, rrule);
+		List<Long> epochDays = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			epochDays.add(recurrence.nextEpochDay());
+		}
+		assertEquals(expected, epochDays);
+	}
+
+	@Test
+	@DisplayName("reuse one calendar for many series by reset")
+	void test_reset_calendar() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO,WE;COUNT=2");
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1), rule);
+		assertAll(() -> assertEquals(LocalDate.of(2018, 1, 1), recurrence.next()),
+				() -> assertEquals(LocalDate.of(2018, 1, 3), recurrence.next()),
+				() -> assertFalse(recurrence.hasNext()));
+		recurrence.reset(LocalDate.of(2020, 1, 1));
+		assertAll(() -> assertEquals(LocalDate.of(2020, 1, 1).toEpochDay(), recurrence.nextEpochDay()),
+				() -> assertEquals(LocalDate.of(2020, 1, 6).toEpochDay(), recurrence.nextEpochDay()),
+				() -> assertFalse(recurrence.hasNext()));
+	}
+
+	@Test
+	@DisplayName("iterate the epoch days of every month on the last day")
+	void test_epoch_day_iterator() {
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1),
+				"RRULE:FREQ=MONTHLY;BYMONTHDAY=-1;COUNT=3");
+		PrimitiveIterator.OfLong iter = recurrence.epochDayIterator();
+		assertAll(() -> assertEquals(LocalDate.of(2018, 1, 31).toEpochDay(), iter.nextLong()),
+				() -> assertEquals(LocalDate.of(2018, 2, 28).toEpochDay(), iter.nextLong()),
+				() -> assertEquals(LocalDate.of(2018, 3, 31).toEpochDay(), iter.nextLong()),
+				() -> assertFalse(iter.hasNext()));
+	}
+}
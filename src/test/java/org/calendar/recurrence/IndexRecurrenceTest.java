@@ -0,0 +1,70 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class IndexRecurrenceTest {
+	private static final String[] RULES = { "RRULE:FREQ=DAILY", "RRULE:FREQ=DAILY;INTERVAL=3",
+			"RRULE:FREQ=DAILY;INTERVAL=40;BYDAY=1MO,-1FR", "RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29",
+			"RRULE:FREQ=WEEKLY", "RRULE:FREQ=WEEKLY;INTERVAL=3;COUNT=20",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;UNTIL=20190101T000000Z",
+			"RRULE:FREQ=MONTHLY;INTERVAL=5", "RRULE:FREQ=MONTHLY;BYDAY=2MO",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=-1,-15;COUNT=40", "RRULE:FREQ=DAILY;BYMONTH=3,4,5;BYDAY=SA,SU" };
+
+	@Test
+	@DisplayName("the series on each date are the same as the occurrence of each calendar")
+	void test_index_same_as_occurrence() {
+		RecurrenceIndex index = new RecurrenceIndex();
+		List<RecurrenceCalendar> calendars = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			LocalDate start = LocalDate.of(2017, 1, 1).plusDays(i * 13 % 800);
+			String rrule = RULES[i % RULES.length];
+			assertEquals(i, index.add(RecurrenceRule.getInstance(rrule).compile(), start));
+			calendars.add(RecurrenceCalendar.getInstance(start, rrule));
+		}
+		for (int i = 0; i < 300; i += 7) {
+			assertTrue(index.remove(i));
+		}
+		assertEquals(300 - 43, index.size());
+		for (LocalDate date = LocalDate.of(2016, 12, 1); date.isBefore(LocalDate.of(2020, 1, 1)); date = date.plusDays(1)) {
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < calendars.size(); i++) {
+				if (i % 7 != 0 && calendars.get(i).isOccurrence(date)) {
+					expected.add(i);
+				}
+			}
+			assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), index.seriesOn(date),
+					"on " + date);
+		}
+	}
+
+	@Test
+	@DisplayName("the series is added and removed incrementally")
+	void test_index_add_remove() {
+		RecurrenceIndex index = new RecurrenceIndex();
+		LocalDate start = LocalDate.of(2018, 1, 1);
+		int monthly = index.add(RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYDAY=2MO").compile(), start);
+		int weekly = index.add(RecurrenceRule.getInstance("RRULE:FREQ=WEEKLY;INTERVAL=2").compile(), start);
+		LocalDate date = LocalDate.of(2018, 1, 8);
+		assertAll(() -> assertArrayEquals(new int[] { monthly }, index.seriesOn(date)),
+				() -> assertArrayEquals(new int[] { weekly }, index.seriesOn(date.plusDays(7))));
+		assertTrue(index.remove(monthly));
+		assertAll(() -> assertArrayEquals(new int[0], index.seriesOn(date)),
+				() -> assertFalse(index.remove(monthly)), () -> assertEquals(1, index.size()));
+		int again = index.add(RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYDAY=2MO").compile(), start);
+		assertArrayEquals(new int[] { again }, index.seriesOn(date));
+	}
+}
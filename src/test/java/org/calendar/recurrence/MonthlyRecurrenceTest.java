@@ -2,6 +2,7 @@ package org.calendar.recurrence;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -446,4 +447,74 @@ class MonthlyRecurrenceTest {
 				() -> assertEquals(LocalDate.of(1999, 3, 10), iter.next()),
 				() -> assertEquals(LocalDate.of(1999, 3, 11), iter.next()));
 	}
+
+	@Test
+	@DisplayName("every month on 2nd Monday, jump to the day directly")
+	void test_Monthly_every_month_on_2nd_Monday_jump_directly() {
+		LocalDate start = LocalDate.of(2018, 1, 1);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, "RRULE:FREQ=MONTHLY;BYDAY=2MO;COUNT=4");
+		// one jump to the next month for each recurrent date
+		recurrence.setMaxCursorMoves(1);
+		List<LocalDate> recurDates = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			LocalDate date = recurrence.next();
+			recurDates.add(date);
+		}
+		Iterator<LocalDate> iter = recurDates.iterator();
+		assertAll(() -> assertEquals(4, recurDates.size()),
+				() -> assertEquals(LocalDate.of(2018, 1, 8), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 2, 12), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 3, 12), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 4, 9), iter.next()));
+	}
+
+	@Test
+	@DisplayName("every 5 months on the 31st, skip the months without it")
+	void test_Monthly_every_5_months_on_the_31st() {
+		LocalDate start = LocalDate.of(2018, 1, 31);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, "RRULE:FREQ=MONTHLY;INTERVAL=5;COUNT=4");
+		List<LocalDate> recurDates = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			LocalDate date = recurrence.next();
+			recurDates.add(date);
+		}
+		Iterator<LocalDate> iter = recurDates.iterator();
+		assertAll(() -> assertEquals(4, recurDates.size()),
+				() -> assertEquals(LocalDate.of(2018, 1, 31), iter.next()),
+				() -> assertEquals(LocalDate.of(2020, 7, 31), iter.next()),
+				() -> assertEquals(LocalDate.of(2020, 12, 31), iter.next()),
+				() -> assertEquals(LocalDate.of(2021, 5, 31), iter.next()));
+	}
+
+	@Test
+	@DisplayName("every 5 months in March and August, jump to the months reached by the interval")
+	void test_Monthly_every_5_months_in_march_and_august() {
+		LocalDate start = LocalDate.of(2018, 1, 15);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start,
+				"RRULE:FREQ=MONTHLY;INTERVAL=5;BYMONTH=3,8;COUNT=4");
+		// the months of year repeat every 60 months, in which only one March and one August are reached
+		recurrence.setMaxCursorMoves(1);
+		List<LocalDate> recurDates = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			LocalDate date = recurrence.next();
+			recurDates.add(date);
+		}
+		Iterator<LocalDate> iter = recurDates.iterator();
+		assertAll(() -> assertEquals(4, recurDates.size()),
+				() -> assertEquals(LocalDate.of(2022, 3, 15), iter.next()),
+				() -> assertEquals(LocalDate.of(2022, 8, 15), iter.next()),
+				() -> assertEquals(LocalDate.of(2027, 3, 15), iter.next()),
+				() -> assertEquals(LocalDate.of(2027, 8, 15), iter.next()));
+	}
+
+	@Test
+	@DisplayName("every 6 months in July, which the interval never reaches")
+	void test_Monthly_every_6_months_never_in_july() {
+		LocalDate start = LocalDate.of(2013, 10, 8);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start,
+				"RRULE:FREQ=MONTHLY;INTERVAL=6;BYMONTHDAY=-3;BYMONTH=7;COUNT=34");
+		RecurrenceCalendar yearly = RecurrenceCalendar.getInstance(start, "RRULE:FREQ=MONTHLY;INTERVAL=12;BYMONTH=1",
+				LocalDate.of(2020, 1, 1));
+		assertAll(() -> assertFalse(recurrence.hasNext()), () -> assertFalse(yearly.hasNext()));
+	}
 }
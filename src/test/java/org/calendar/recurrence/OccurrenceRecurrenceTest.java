@@ -0,0 +1,129 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class OccurrenceRecurrenceTest {
+	private static final LocalDate START = LocalDate.of(2012, 3, 14);
+	private static final LocalDate END = LocalDate.of(2020, 1, 1);
+
+	@DisplayName("the occurrence is the same as the iteration")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY", "RRULE:FREQ=DAILY;INTERVAL=3;BYDAY=MO,WE",
+			"RRULE:FREQ=DAILY;INTERVAL=40;BYDAY=1MO,-1FR", "RRULE:FREQ=DAILY;INTERVAL=2;BYMONTH=2;BYMONTHDAY=29",
+			"RRULE:FREQ=WEEKLY;INTERVAL=3", "RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;COUNT=100",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYMONTHDAY=30;BYMONTH=1,6", "RRULE:FREQ=MONTHLY;INTERVAL=5",
+			"RRULE:FREQ=MONTHLY;INTERVAL=2;BYDAY=1MO,-1FR;UNTIL=20170101T000000Z",
+			"RRULE:FREQ=MONTHLY;INTERVAL=2;BYMONTHDAY=-1,-15;COUNT=40" })
+	void test_occurrence_same_as_iteration(String rrule) {
+		Set<LocalDate> expected = new HashSet<>();
+		RecurrenceCalendar iteration = RecurrenceCalendar.getInstance(START, rrule);
+		while (iteration.hasNext()) {
+			LocalDate date = iteration.next();
+			if (!date.isBefore(END)) {
+				break;
+			}
+			expected.add(date);
+		}
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(START, rrule);
+		for (LocalDate date = START.minusDays(10); date.isBefore(END); date = date.plusDays(1)) {
+			assertEquals(expected.contains(date), recurrence.isOccurrence(date), rrule + " on " + date);
+		}
+	}
+
+	@Test
+	@DisplayName("the occurrence does not change the iteration")
+	void test_occurrence_keeps_iteration() {
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1),
+				"RRULE:FREQ=MONTHLY;BYDAY=2MO;COUNT=3");
+		assertEquals(LocalDate.of(2018, 1, 8), recurrence.next());
+		assertAll(() -> assertTrue(recurrence.isOccurrence(LocalDate.of(2018, 3, 12))),
+				() -> assertFalse(recurrence.isOccurrence(LocalDate.of(2018, 4, 9))),
+				() -> assertFalse(recurrence.isOccurrence(LocalDate.of(2018, 3, 13))));
+		assertEquals(LocalDate.of(2018, 2, 12), recurrence.next());
+	}
+
+	@DisplayName("the occurrence at the index is the same as the iteration")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY;INTERVAL=3;BYDAY=MO,WE", "RRULE:FREQ=DAILY;INTERVAL=40;BYDAY=1MO,-1FR",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;COUNT=100", "RRULE:FREQ=MONTHLY;INTERVAL=5",
+			"RRULE:FREQ=MONTHLY;INTERVAL=2;BYDAY=1MO,-1FR;UNTIL=20170101T000000Z",
+			"RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29;BYDAY=MO;COUNT=30" })
+	void test_occurrence_at_same_as_iteration(String rrule) {
+		RecurrenceCalendar iteration = RecurrenceCalendar.getInstance(START, rrule);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(START, rrule);
+		long index = 0;
+		for (; index < 1000 && iteration.hasNext(); index++) {
+			LocalDate date = iteration.next();
+			assertEquals(date, recurrence.occurrenceAt(index), rrule + " at " + index);
+			assertEquals(index, recurrence.indexOf(date), rrule + " on " + date);
+			long nextIndex = recurrence.indexOf(date.plusDays(1));
+			assertTrue(nextIndex == -1 || nextIndex == index + 1, rrule + " after " + date);
+		}
+		if (!iteration.hasNext()) {
+			long last = index;
+			assertThrows(NoSuchElementException.class, () -> recurrence.occurrenceAt(last));
+		}
+	}
+
+	@Test
+	@DisplayName("the far occurrence skips the whole periods")
+	void test_far_occurrence() {
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1),
+				"RRULE:FREQ=DAILY;INTERVAL=2;BYDAY=MO,WE,FR");
+		LocalDate date = recurrence.occurrenceAt(100_000_000L);
+		assertAll(() -> assertTrue(recurrence.isOccurrence(date)),
+				() -> assertEquals(100_000_000L, recurrence.indexOf(date)),
+				() -> assertEquals(-1, recurrence.indexOf(date.plusDays(1))));
+		recurrence.seek(date);
+		assertEquals(date, recurrence.next());
+	}
+
+	@DisplayName("the last occurrence is the same as the iteration")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY;INTERVAL=40;BYDAY=MO;COUNT=9", "RRULE:FREQ=WEEKLY;INTERVAL=3;COUNT=17",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;UNTIL=20170101T000000Z",
+			"RRULE:FREQ=MONTHLY;INTERVAL=7;BYMONTHDAY=31;COUNT=5",
+			"RRULE:FREQ=MONTHLY;BYDAY=-1FR;UNTIL=20150101T000000Z;COUNT=500",
+			"RRULE:FREQ=MONTHLY;INTERVAL=12;BYMONTH=3;BYDAY=MO;COUNT=100" })
+	void test_last_occurrence_same_as_iteration(String rrule) {
+		RecurrenceCalendar iteration = RecurrenceCalendar.getInstance(START, rrule);
+		LocalDate last = null;
+		while (iteration.hasNext()) {
+			last = iteration.next();
+		}
+		assertEquals(Optional.ofNullable(last), RecurrenceCalendar.getInstance(START, rrule).lastOccurrence(), rrule);
+	}
+
+	@Test
+	@DisplayName("the last occurrences of many rules")
+	void test_last_epoch_days() {
+		CompiledRecurrenceRule[] rules = { RecurrenceRule.getInstance("RRULE:FREQ=DAILY;COUNT=10").compile(),
+				RecurrenceRule.getInstance("RRULE:FREQ=DAILY").compile(),
+				RecurrenceRule.getInstance("RRULE:FREQ=DAILY;UNTIL=20100101T000000Z").compile(),
+				RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYDAY=2MO;COUNT=3").compile() };
+		long start = LocalDate.of(2018, 1, 1).toEpochDay();
+		long[] lastEpochDays = RecurrenceCalendar.lastEpochDays(rules, new long[] { start, start, start, start });
+		assertAll(() -> assertEquals(LocalDate.of(2018, 1, 10).toEpochDay(), lastEpochDays[0]),
+				() -> assertEquals(RecurrenceCalendar.UNBOUNDED, lastEpochDays[1]),
+				() -> assertEquals(RecurrenceCalendar.NO_OCCURRENCE, lastEpochDays[2]),
+				() -> assertEquals(LocalDate.of(2018, 3, 12).toEpochDay(), lastEpochDays[3]));
+	}
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 @TestMethodOrder(MethodOrderer.Alphanumeric.class)
@@ -73,18 +75,78 @@ class OtherRecurrenceTest {
 		});
 	}
 
+	@DisplayName("throw exception when rule never recurs")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=MONTHLY;BYMONTH=2;BYMONTHDAY=30", "RRULE:FREQ=WEEKLY;BYMONTHDAY=31;BYMONTH=4",
+			"RRULE:FREQ=DAILY;BYMONTHDAY=-31;BYMONTH=2,4,6,9,11", "RRULE:FREQ=MONTHLY;BYMONTHDAY=1;BYDAY=2MO",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=1,2,3;BYDAY=-1MO,-2TU" })
+	void test_never_recurs_exception(String rrule) {
+		Throwable exception = assertThrows(RRuleException.class, () -> RecurrenceRule.getInstance(rrule));
+		assertEquals("The rule never recurs, no date matches all of BYMONTH, BYMONTHDAY and BYDAY:\n" + rrule,
+				exception.getMessage());
+	}
+
+	@DisplayName("accept the rule which recurs in the leap years only")
+	@ParameterizedTest
+	@CsvSource({ "RRULE:FREQ=MONTHLY;BYMONTH=2;BYDAY=5MO, 2016-02-29", "RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=-29, 2000-02-01",
+			"RRULE:FREQ=WEEKLY;BYMONTHDAY=29;BYMONTH=2;BYDAY=SU, 2004-02-29" })
+	void test_recurs_in_leap_years(String rrule, LocalDate expected) {
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(1997, 1, 1), rrule);
+		assertEquals(expected, recurrence.next());
+	}
+
 	@Test
+	@DisplayName("the next closest valid day of week is within the week")
+	void test_next_closest_valid_day_of_week() {
+		DayOfWeekValidator validator = new DayOfWeekValidator("MO,WE");
+		// from Monday 2018-01-01, the Sunday of the week is 2018-01-07
+		assertAll(() -> assertEquals(LocalDate.of(2018, 1, 3), validator.nextClosestValidDate(LocalDate.of(2018, 1, 1))),
+				() -> assertEquals(LocalDate.of(2018, 1, 7), validator.nextClosestValidDate(LocalDate.of(2018, 1, 3))),
+				() -> assertEquals(LocalDate.of(2018, 1, 7), validator.nextClosestValidDate(LocalDate.of(2018, 1, 7))),
+				() -> assertEquals(LocalDate.of(2018, 1, 2),
+						new DayOfWeekValidator("2MO").nextClosestValidDate(LocalDate.of(2018, 1, 1))));
+	}
+
+		@Test
 	@DisplayName("throw exception when infinite loop detected")
 	void test_infinite_loop_detected_exception() {
-		Throwable exception = assertThrows(InfiniteLoopException.class, () -> {
-			RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYMONTHDAY=15");
-			LocalDate start = LocalDate.of(1997, 9, 13);
-			RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, rule);
-			while (recurrence.hasNext()) {
-				recurrence.next();
-			}
-		});
-		assertEquals("Infinite loop detected!", exception.getMessage());
+		// the 29th of February on Monday, which recurs every 28 years
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29;BYDAY=MO");
+		LocalDate start = LocalDate.of(1997, 9, 13);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, rule);
+		assertEquals(LocalDate.of(2016, 2, 29), recurrence.next());
+		recurrence.setMaxCursorMoves(10);
+		Throwable exception = assertThrows(InfiniteLoopException.class, () -> recurrence.next());
+		assertTrue(exception.getMessage().startsWith("Infinite loop detected! No recurrence of " + rule.compile()),
+				exception.getMessage());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=MONTHLY;INTERVAL=6;BYMONTH=5,7;UNTIL=20260723T000000Z",
+			"RRULE:FREQ=DAILY;INTERVAL=2;BYMONTH=2;BYMONTHDAY=29;BYDAY=MO;UNTIL=20300101T000000Z",
+			"RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29;BYDAY=MO;UNTIL=20300101T000000Z",
+			"RRULE:FREQ=WEEKLY;BYMONTH=2;BYMONTHDAY=29;BYDAY=MO;UNTIL=20300101T000000Z" })
+	@DisplayName("no infinite loop detected if there is no more recurrence until UNTIL")
+	void test_no_infinite_loop_detected_after_until(String rrule) {
+		// the next 29th of February on Monday is in 2044
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2016, 3, 4), rrule);
+		recurrence.setMaxCursorMoves(1000);
+		assertAll(() -> assertFalse(recurrence.hasNext()),
+				() -> assertEquals(0, recurrence.between(LocalDate.of(2014, 1, 1), LocalDate.of(2040, 1, 1)).size()),
+				() -> assertEquals(0, recurrence.fill(new int[4], 0, LocalDate.of(2014, 1, 1).toEpochDay(),
+						LocalDate.of(2040, 1, 1).toEpochDay())));
+	}
+
+	@Test
+	@DisplayName("no infinite loop detected for the long recurrence")
+	void test_no_infinite_loop_detected_for_long_recurrence() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYMONTHDAY=15");
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(1997, 9, 13), rule);
+		LocalDate date = null;
+		for (int i = 0; i < 100000; i++) {
+			date = recurrence.next();
+		}
+		assertEquals(LocalDate.of(1997, 9, 15).plusMonths(99999), date);
 	}
 
 	@Test
@@ -0,0 +1,76 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class RRuleParserTest {
+
+	@DisplayName("parse the same rule from string, chars and bytes")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY", "RRULE:FREQ=WEEKLY;INTERVAL=2;COUNT=10;BYDAY=MO,WE",
+			"RRULE:FREQ=MONTHLY;UNTIL=20201231T000000Z;BYMONTH=2,8;BYMONTHDAY=1,15,-1,-15;BYDAY=SU,1MO,-1FR" })
+	void test_parse_char_sequence_and_byte_buffer(String rrule) {
+		RecurrenceRule rule = RecurrenceRule.getInstance(rrule);
+		ByteBuffer bytes = ByteBuffer.wrap(("garbage" + rrule).getBytes(StandardCharsets.US_ASCII));
+		bytes.position(7);
+		assertAll(() -> assertEquals(rrule, rule.toString()),
+				() -> assertEquals(rule, RecurrenceRule.getInstance(new StringBuilder(rrule))),
+				() -> assertEquals(rule, RecurrenceRule.getInstance(CharBuffer.wrap(rrule))),
+				() -> assertEquals(rule, RecurrenceRule.getInstance(bytes)),
+				() -> assertEquals(7, bytes.position()));
+	}
+
+	@Test
+	@DisplayName("ignore the spaces, the case, the unknown and empty rule parts")
+	void test_lenient_rule() {
+		RecurrenceRule rule = RecurrenceRule.getInstance(
+				" rrule : freq = weekly ; wkst=SU;X-NAME=a b;;byday = +1mo , -2 fr,tu ; count=3; ");
+		assertAll(() -> assertEquals("RRULE:FREQ=WEEKLY;COUNT=3;BYDAY=TU,1MO,-2FR", rule.toString()),
+				() -> assertEquals(rule, RecurrenceRule.getInstance("RRULE:BYDAY=TU,1MO,-2FR;COUNT=3;FREQ=WEEKLY")));
+	}
+
+	@Test
+	@DisplayName("parse the until date in the local time")
+	void test_until() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=DAILY;UNTIL=20190315T093005Z");
+		LocalDateTime until = LocalDateTime.of(2019, 3, 15, 9, 30, 5);
+		assertEquals(Date.from(until.atZone(ZoneId.systemDefault()).toInstant()), rule.getUntil());
+	}
+
+	@DisplayName("throw exception with the invalid value")
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', value = { "RRULE:FREQ=MONTHLY;BYMONTHDAY=0|Invalid day of month:0",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=1,-32;COUNT=1|Invalid day of month:1,-32",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=1/2|Invalid day of month:1/2",
+			"RRULE:FREQ=MONTHLY;BYMONTH=0|Invalid month:0", "RRULE:FREQ=MONTHLY;BYMONTH=1,,2|Invalid month:1,,2",
+			"RRULE:FREQ=MONTHLY;BYDAY=0MO|Invalid day of week[0MO]",
+			"RRULE:FREQ=MONTHLY;BYDAY=MO,MON|Invalid day of week[MO,MON]",
+			"RRULE:FREQ=MONTHLY;BYDAY=+MO|Invalid day of week[+MO]", "RRULE:FREQ=DAILY;COUNT=1a|Invalid count:1a",
+			"RRULE:FREQ=DAILY;INTERVAL=99999999999|Invalid interval:99999999999",
+			"RRULE:FREQ=DAILY;INTERVAL=0|Invalid interval:0", "RRULE:FREQ=DAILY;INTERVAL=-2|Invalid interval:-2",
+			"RRULE:FREQ=DAILY;COUNT=0|Invalid count:0", "RRULE:FREQ=DAILY;COUNT=+3|Invalid count:+3",
+			"RRULE:FREQ=DAILY;UNTIL=20190230T000000Z|The recurence until date[20190230T000000Z] is not valid, it does not follow the pattern of \"yyyyMMdd'T'Hmmss'Z'\"",
+			"RRULE:FREQ=DAILY;UNTIL=20190101T0000Z;COUNT=1|The recurence until date[20190101T0000Z] is not valid, it does not follow the pattern of \"yyyyMMdd'T'Hmmss'Z'\"",
+			"RRULE:FREQ;COUNT=1|The rule is not valid:RRULE:FREQ;COUNT=1" })
+	void test_invalid_value(String rrule, String message) {
+		Throwable exception = assertThrows(RRuleException.class, () -> RecurrenceRule.getInstance(rrule));
+		assertEquals(message, exception.getMessage());
+	}
+}
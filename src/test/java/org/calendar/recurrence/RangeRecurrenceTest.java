@@ -0,0 +1,142 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class RangeRecurrenceTest {
+	private static final LocalDate START = LocalDate.of(2012, 3, 14);
+
+	@DisplayName("seek is the same as skipping the recurrent dates before")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY", "RRULE:FREQ=DAILY;INTERVAL=3;BYDAY=MO,WE",
+			"RRULE:FREQ=DAILY;BYMONTH=1;BYMONTHDAY=1,-1", "RRULE:FREQ=WEEKLY;INTERVAL=3",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR", "RRULE:FREQ=WEEKLY;INTERVAL=2;BYMONTHDAY=30",
+			"RRULE:FREQ=MONTHLY;INTERVAL=5", "RRULE:FREQ=MONTHLY;INTERVAL=2;BYDAY=1MO,-1FR",
+			"RRULE:FREQ=MONTHLY;INTERVAL=18;BYMONTHDAY=10,11,12,13,14,15",
+			"RRULE:FREQ=MONTHLY;INTERVAL=2;BYMONTHDAY=-1,-15;COUNT=40" })
+	void test_seek_same_as_iteration(String rrule) {
+		List<LocalDate> expected = iterate(RecurrenceCalendar.getInstance(START, rrule), 200);
+		for (LocalDate from = START.minusDays(3); from.isBefore(LocalDate.of(2014, 1, 1)); from = from.plusDays(5)) {
+			LocalDate fromDate = from;
+			List<LocalDate> remaining = new ArrayList<>();
+			expected.stream().filter(date -> !date.isBefore(fromDate)).limit(20).forEach(remaining::add);
+			RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(START, rrule, from);
+			assertEquals(remaining, iterate(recurrence, remaining.size()), rrule + " from " + from);
+		}
+	}
+
+	@Test
+	@DisplayName("skipped recurrent dates still count")
+	void test_seek_keeps_count() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO,WE;COUNT=5");
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1), rule, LocalDate.of(2018, 1, 9));
+		assertAll(() -> assertEquals(LocalDate.of(2018, 1, 10), recurrence.next()),
+				() -> assertEquals(LocalDate.of(2018, 1, 15), recurrence.next()),
+				() -> assertFalse(recurrence.hasNext()));
+		recurrence.seek(LocalDate.of(2017, 1, 1));
+		assertEquals(LocalDate.of(2018, 1, 1), recurrence.next());
+	}
+
+	@Test
+	@DisplayName("seek the rule bounded by COUNT without iterating the skipped recurrent dates")
+	void test_seek_count_without_iteration() {
+		RecurrenceCalendar never = RecurrenceCalendar.getInstance(LocalDate.of(2013, 10, 8),
+				"RRULE:FREQ=MONTHLY;INTERVAL=6;BYMONTHDAY=-3;BYMONTH=7;COUNT=34", LocalDate.of(2014, 1, 1));
+		RecurrenceCalendar daily = RecurrenceCalendar.getInstance(START, "RRULE:FREQ=DAILY;COUNT=1000000");
+		daily.seek(START.plusDays(999998));
+		assertAll(() -> assertEquals(-1, never.indexOf(LocalDate.of(2014, 7, 29))),
+				() -> assertEquals(START.plusDays(999998), daily.next()),
+				() -> assertEquals(START.plusDays(999999), daily.next()),
+				() -> assertFalse(daily.hasNext()));
+		daily.seek(START.plusDays(2000000));
+		assertFalse(daily.hasNext());
+	}
+
+	@DisplayName("the window is the same as the iteration filtered by date")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY;INTERVAL=2", "RRULE:FREQ=WEEKLY;BYDAY=TU,TH;INTERVAL=2",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=1,-1;COUNT=30" })
+	void test_between_same_as_filtered_iteration(String rrule) {
+		LocalDate from = LocalDate.of(2013, 2, 1);
+		LocalDate to = LocalDate.of(2013, 4, 30);
+		List<LocalDate> expected = new ArrayList<>();
+		iterate(RecurrenceCalendar.getInstance(START, rrule), 500).stream()
+				.filter(date -> !date.isBefore(from) && !date.isAfter(to)).forEach(expected::add);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(START, rrule);
+		assertEquals(expected, recurrence.between(from, to));
+
+		int[] buffer = new int[100];
+		int size = recurrence.fill(buffer, 1, from.toEpochDay(), to.toEpochDay());
+		assertEquals(expected.size(), size);
+		for (int i = 0; i < size; i++) {
+			assertEquals(expected.get(i).toEpochDay(), buffer[i + 1]);
+		}
+	}
+
+	@Test
+	@DisplayName("the window of the rule which never recurs is empty")
+	void test_between_never_recurs() {
+		// every 14 days from a Tuesday is never Monday
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2019, 1, 1),
+				"RRULE:FREQ=DAILY;INTERVAL=14;BYDAY=MO");
+		assertAll(() -> assertEquals(0, recurrence.between(LocalDate.of(2019, 1, 1), LocalDate.of(2030, 1, 1)).size()),
+				() -> assertEquals(0, recurrence.fill(new int[4], 0, LocalDate.of(2019, 1, 1).toEpochDay(),
+						LocalDate.of(2030, 1, 1).toEpochDay())));
+	}
+
+		@Test
+	@DisplayName("fill the buffer until it is full")
+	void test_fill_full_buffer() {
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1), "RRULE:FREQ=WEEKLY;BYDAY=MO,WE");
+		int[] buffer = new int[3];
+		long from = LocalDate.of(2018, 2, 1).toEpochDay();
+		long to = LocalDate.of(2018, 2, 28).toEpochDay();
+		assertAll(() -> assertEquals(3, recurrence.fill(buffer, 0, from, to)),
+				() -> assertEquals(LocalDate.of(2018, 2, 5).toEpochDay(), buffer[0]),
+				() -> assertEquals(LocalDate.of(2018, 2, 7).toEpochDay(), buffer[1]),
+				() -> assertEquals(LocalDate.of(2018, 2, 12).toEpochDay(), buffer[2]),
+				() -> assertEquals(LocalDate.of(2018, 2, 14), recurrence.next()),
+				() -> assertEquals(0, recurrence.fill(buffer, 0, from + 2, from + 3)));
+	}
+
+	@DisplayName("the count of the window is the same as the iteration filtered by date")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY;INTERVAL=2", "RRULE:FREQ=DAILY;INTERVAL=5;BYDAY=MO,SA;BYMONTH=1,2",
+			"RRULE:FREQ=WEEKLY;BYDAY=TU,TH;INTERVAL=2", "RRULE:FREQ=WEEKLY;INTERVAL=3;BYMONTHDAY=1,-1",
+			"RRULE:FREQ=MONTHLY;BYMONTHDAY=1,-1;COUNT=30", "RRULE:FREQ=MONTHLY;INTERVAL=5;UNTIL=20140601T000000Z" })
+	void test_countBetween_same_as_filtered_iteration(String rrule) {
+		List<LocalDate> dates = iterate(RecurrenceCalendar.getInstance(START, rrule), 2000);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(START, rrule);
+		for (LocalDate from = START.minusDays(20); from.isBefore(LocalDate.of(2015, 1, 1)); from = from.plusDays(23)) {
+			for (LocalDate to = from.minusDays(1); to.isBefore(from.plusYears(2)); to = to.plusDays(37)) {
+				LocalDate fromDate = from;
+				LocalDate toDate = to;
+				long expected = dates.stream().filter(date -> !date.isBefore(fromDate) && !date.isAfter(toDate)).count();
+				assertEquals(expected, recurrence.countBetween(from, to), rrule + " from " + from + " to " + to);
+			}
+		}
+		assertEquals(dates.stream().filter(date -> date.getYear() == 2013).count(),
+				RecurrenceRule.getInstance(rrule).countBetween(START, LocalDate.of(2013, 1, 1), LocalDate.of(2013, 12, 31)));
+	}
+
+	private static List<LocalDate> iterate(RecurrenceCalendar recurrence, int limit) {
+		List<LocalDate> dates = new ArrayList<>();
+		while (dates.size() < limit && recurrence.hasNext()) {
+			dates.add(recurrence.next());
+		}
+		return dates;
+	}
+}
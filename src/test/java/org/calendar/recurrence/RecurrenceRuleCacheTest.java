@@ -0,0 +1,81 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class RecurrenceRuleCacheTest {
+
+	@Test
+	@DisplayName("the normalized rule is cached once")
+	void test_cache_hit_and_miss() {
+		RecurrenceRuleCache cache = new RecurrenceRuleCache(10);
+		CompiledRecurrenceRule rule = cache.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO,WE");
+		assertAll(() -> assertSame(rule, cache.getInstance("rrule:freq=weekly; byday=mo,we")),
+				() -> assertSame(rule, cache.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO,WE")),
+				() -> assertEquals(RecurrenceRule.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO,WE").compile(), rule),
+				() -> assertEquals(1, cache.getMissCount()),
+				() -> assertEquals(2, cache.getHitCount()),
+				() -> assertEquals(1, cache.size()));
+	}
+
+	@Test
+	@DisplayName("the referenced rules survive the eviction")
+	void test_cache_eviction() {
+		RecurrenceRuleCache cache = new RecurrenceRuleCache(2);
+		CompiledRecurrenceRule daily = cache.getInstance("RRULE:FREQ=DAILY");
+		cache.getInstance("RRULE:FREQ=WEEKLY");
+		cache.getInstance("RRULE:FREQ=DAILY");
+		cache.getInstance("RRULE:FREQ=MONTHLY");// evicts the weekly rule which is not referenced
+		assertAll(() -> assertEquals(2, cache.size()),
+				() -> assertEquals(1, cache.getEvictionCount()),
+				() -> assertSame(daily, cache.getInstance("RRULE:FREQ=DAILY")),
+				() -> assertEquals(3, cache.getMissCount()));
+	}
+
+	@Test
+	@DisplayName("the invalid rule is never cached")
+	void test_invalid_rule_not_cached() {
+		RecurrenceRuleCache cache = new RecurrenceRuleCache(2);
+		assertThrows(RRuleException.class, () -> cache.getInstance("RRULE:FREQ=MONTHLY;BYMONTH=13"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	@DisplayName("share the cache by threads")
+	void test_concurrent_access() throws Exception {
+		RecurrenceRuleCache cache = new RecurrenceRuleCache(16);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < 4; thread++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 10000; i++) {
+					int interval = i % 32 + 1;
+					CompiledRecurrenceRule rule = cache.getInstance("RRULE:FREQ=DAILY;INTERVAL=" + interval);
+					assertEquals(interval, rule.getInterval());
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+		assertAll(() -> assertEquals(16, cache.size()),
+				() -> assertEquals(40000, cache.getHitCount() + cache.getMissCount()));
+	}
+}
@@ -0,0 +1,37 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class RecurrenceRuleTest {
+
+	@Test
+	@DisplayName("rules with the same rule parts are equal")
+	void test_equals_regardless_of_order_and_case() {
+		RecurrenceRule rule = RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYDAY=1MO,-1FR;BYMONTHDAY=1,-1;BYMONTH=1,6");
+		RecurrenceRule same = RecurrenceRule.getInstance("rrule:bymonth=6,1;bymonthday=-1,1;byday=-1fr,1mo;freq=monthly;interval=1");
+		assertAll(() -> assertEquals(rule, same), () -> assertEquals(rule.hashCode(), same.hashCode()),
+				() -> assertNotEquals(rule, RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYDAY=1MO,-1FR;BYMONTHDAY=1,-1")),
+				() -> assertNotEquals(rule, RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYDAY=1MO,-2FR;BYMONTHDAY=1,-1;BYMONTH=1,6")),
+				() -> assertNotEquals(RecurrenceRule.getInstance("RRULE:FREQ=DAILY;COUNT=2"), RecurrenceRule.getInstance("RRULE:FREQ=DAILY;COUNT=3")));
+	}
+
+	@DisplayName("the string of rule creates an equal rule")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY", "RRULE:FREQ=WEEKLY;INTERVAL=2;COUNT=10;BYDAY=MO,WE",
+			"RRULE:FREQ=MONTHLY;UNTIL=20201231T000000Z;BYMONTH=2,8;BYMONTHDAY=1,15,-1,-15;BYDAY=SU,1MO,-1FR" })
+	void test_toString(String rrule) {
+		RecurrenceRule rule = RecurrenceRule.getInstance(rrule);
+		assertAll(() -> assertEquals(rrule, rule.toString()),
+				() -> assertEquals(rule, RecurrenceRule.getInstance(rule.toString())));
+	}
+}
@@ -0,0 +1,59 @@
+package org.calendar.recurrence;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The straightforward expansion of a rule, day by day with {@link LocalDate} and the validators, to verify the
+ * generators against.
+ */
+final class ReferenceRecurrence {
+
+	private ReferenceRecurrence() {
+	}
+
+	/**
+	 * @return the recurrent dates from {@code start} to {@code to}, both inclusive, bounded by COUNT but not UNTIL
+	 */
+	static List<LocalDate> expand(RecurrenceRule rule, LocalDate start, LocalDate to) {
+		List<LocalDate> dates = new ArrayList<>();
+		for (LocalDate date = start; !date.isAfter(to); date = date.plusDays(1)) {
+			if (isCandidate(rule, start, date) && matches(rule, date)) {
+				dates.add(date);
+				if (dates.size() == rule.getCount()) {
+					break;
+				}
+			}
+		}
+		return dates;
+	}
+
+	static boolean matches(RecurrenceRule rule, LocalDate date) {
+		return (rule.getMonthValidator() == null || rule.getMonthValidator().isValid(date))
+				&& (rule.getDayOfMonthValidator() == null || rule.getDayOfMonthValidator().isValid(date))
+				&& (rule.getDayOfWeekValidator() == null || rule.getDayOfWeekValidator().isValid(date));
+	}
+
+	/**
+	 * @return true if the date is in the interval lattice of the frequency, before the BY rule parts are applied
+	 */
+	static boolean isCandidate(RecurrenceRule rule, LocalDate start, LocalDate date) {
+		int interval = rule.getInterval();
+		boolean byDay = rule.getDayOfWeekValidator() != null || rule.getDayOfMonthValidator() != null;
+		switch (rule.getFreq()) {
+		case DAILY:
+			return ChronoUnit.DAYS.between(start, date) % interval == 0;
+		case WEEKLY:
+			LocalDate startMonday = start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+			long weeks = ChronoUnit.DAYS.between(startMonday, date) / 7;
+			return weeks % interval == 0 && (byDay || date.getDayOfWeek() == start.getDayOfWeek());
+		default:
+			long months = ChronoUnit.MONTHS.between(start.withDayOfMonth(1), date.withDayOfMonth(1));
+			return months % interval == 0 && (byDay || date.getDayOfMonth() == start.getDayOfMonth());
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class StreamRecurrenceTest {
+	private static final LocalDate START = LocalDate.of(2012, 3, 14);
+	private static final int LIMIT = 5000;
+
+	@DisplayName("the stream is the same as the iteration")
+	@ParameterizedTest
+	@ValueSource(strings = { "RRULE:FREQ=DAILY", "RRULE:FREQ=DAILY;INTERVAL=3;BYDAY=MO,WE;COUNT=2000",
+			"RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29", "RRULE:FREQ=WEEKLY;INTERVAL=3;UNTIL=20500101T000000Z",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR", "RRULE:FREQ=MONTHLY;INTERVAL=7;BYMONTHDAY=31;COUNT=500",
+			"RRULE:FREQ=MONTHLY;BYDAY=-1FR;UNTIL=20480101T000000Z;COUNT=50", "RRULE:FREQ=DAILY;UNTIL=20100101T000000Z" })
+	void test_stream_same_as_iteration(String rrule) {
+		RecurrenceCalendar iteration = RecurrenceCalendar.getInstance(START, rrule);
+		List<LocalDate> expected = new ArrayList<>();
+		while (expected.size() < LIMIT && iteration.hasNext()) {
+			expected.add(iteration.next());
+		}
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(START, rrule);
+		assertAll(() -> assertEquals(expected, recurrence.stream().limit(LIMIT).collect(Collectors.toList())),
+				() -> assertEquals(expected,
+						recurrence.stream().parallel().limit(LIMIT).collect(Collectors.toList())));
+	}
+
+	@Test
+	@DisplayName("the stream is sized if the recurrence is bounded")
+	void test_stream_sized() {
+		RecurrenceCalendar bounded = RecurrenceCalendar.getInstance(START,
+				"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;UNTIL=21000101T000000Z");
+		Spliterator.OfLong spliterator = bounded.spliterator();
+		long expected = bounded.countBetween(START, LocalDate.of(2100, 1, 1));
+		assertAll(() -> assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED)),
+				() -> assertTrue(spliterator.hasCharacteristics(
+						Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL)),
+				() -> assertEquals(expected, spliterator.estimateSize()),
+				() -> assertEquals(expected, bounded.epochDayStream().parallel().count()),
+				() -> assertFalse(RecurrenceCalendar.getInstance(START, "RRULE:FREQ=DAILY").spliterator()
+						.hasCharacteristics(Spliterator.SIZED)));
+	}
+
+	@Test
+	@DisplayName("the stream does not change the iteration")
+	void test_stream_keeps_iteration() {
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(LocalDate.of(2018, 1, 1),
+				"RRULE:FREQ=MONTHLY;BYDAY=2MO;COUNT=3");
+		assertEquals(LocalDate.of(2018, 1, 8), recurrence.next());
+		assertEquals(3, recurrence.stream().count());
+		assertEquals(LocalDate.of(2018, 2, 12), recurrence.next());
+	}
+}
@@ -0,0 +1,121 @@
+package org.calendar.recurrence;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class TableRecurrenceTest {
+	private static final String[] RULES = { "RRULE:FREQ=DAILY", "RRULE:FREQ=DAILY;INTERVAL=3",
+			"RRULE:FREQ=DAILY;INTERVAL=40;BYDAY=1MO,-1FR", "RRULE:FREQ=DAILY;BYMONTH=2;BYMONTHDAY=29",
+			"RRULE:FREQ=DAILY;INTERVAL=45;BYMONTHDAY=-3", "RRULE:FREQ=WEEKLY", "RRULE:FREQ=WEEKLY;INTERVAL=3;COUNT=20",
+			"RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;UNTIL=20190101T000000Z",
+			"RRULE:FREQ=WEEKLY;INTERVAL=5;BYDAY=-2SU,TU", "RRULE:FREQ=MONTHLY;INTERVAL=5",
+			"RRULE:FREQ=MONTHLY;BYDAY=2MO", "RRULE:FREQ=MONTHLY;BYMONTHDAY=-1,-15;COUNT=40",
+			"RRULE:FREQ=MONTHLY;INTERVAL=7;BYMONTHDAY=31", "RRULE:FREQ=MONTHLY;BYDAY=-5MO,5FR;BYMONTHDAY=1,29,30,31",
+			"RRULE:FREQ=MONTHLY;INTERVAL=12;BYMONTH=1;BYDAY=MO", "RRULE:FREQ=DAILY;INTERVAL=2;UNTIL=20100101T000000Z" };
+
+	@Test
+	@DisplayName("the next recurrent dates of the table are the same as the calendars")
+	void test_table_same_as_calendar() {
+		int size = RULES.length * 50;
+		CompiledRecurrenceRule[] rules = new CompiledRecurrenceRule[size];
+		long[] startEpochDays = new long[size];
+		for (int i = 0; i < size; i++) {
+			rules[i] = RecurrenceRule.getInstance(RULES[i % RULES.length]).compile();
+			startEpochDays[i] = LocalDate.of(2017, 1, 1).plusDays(i * 17 % 800).toEpochDay();
+		}
+		RecurrenceTable table = RecurrenceTable.of(rules, startEpochDays);
+		long[] out = new long[size];
+		for (LocalDate date = LocalDate.of(2016, 6, 1); date.isBefore(LocalDate.of(2022, 1, 1)); date = date.plusDays(37)) {
+			long epochDay = date.toEpochDay();
+			table.nextAfter(epochDay, out);
+			for (int i = 0; i < size; i++) {
+				assertEquals(next(rules[i], startEpochDays[i], epochDay), out[i], rules[i] + " after " + date);
+				assertEquals(out[i], table.nextAfter(i, epochDay));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("the rule without more recurrent date")
+	void test_table_no_occurrence() {
+		CompiledRecurrenceRule[] rules = { RecurrenceRule.getInstance("RRULE:FREQ=DAILY;COUNT=3").compile(),
+				RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;INTERVAL=12;BYMONTH=1;BYDAY=MO").compile() };
+		long start = LocalDate.of(2018, 3, 1).toEpochDay();
+		RecurrenceTable table = RecurrenceTable.of(rules, new long[] { start, start });
+		assertAll(() -> assertEquals(start + 2, table.nextAfter(0, start + 1)),
+				() -> assertEquals(RecurrenceCalendar.NO_OCCURRENCE, table.nextAfter(0, start + 2)),
+				() -> assertEquals(RecurrenceCalendar.NO_OCCURRENCE, table.nextAfter(1, start)));
+	}
+
+	@Test
+	@DisplayName("the next recurrent dates before 1970 and before year 0")
+	void test_table_before_epoch() {
+		CompiledRecurrenceRule[] rules = { RecurrenceRule.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO").compile(),
+				RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYMONTHDAY=15").compile() };
+		long[] startEpochDays = { LocalDate.of(1960, 1, 1).toEpochDay(), LocalDate.of(-10, 1, 1).toEpochDay() };
+		RecurrenceTable table = RecurrenceTable.of(rules, startEpochDays);
+		long[] out = new long[2];
+		table.nextAfter(LocalDate.of(-5, 3, 20).toEpochDay(), out);
+		int[] counts = table.countsBetween(LocalDate.of(-5, 3, 1).toEpochDay(), LocalDate.of(-5, 6, 1).toEpochDay());
+		assertAll(
+				() -> assertEquals(LocalDate.of(1965, 3, 8).toEpochDay(),
+						table.nextAfter(0, LocalDate.of(1965, 3, 3).toEpochDay())),
+				() -> assertEquals(LocalDate.of(-5, 4, 15).toEpochDay(), out[1]),
+				() -> assertEquals(LocalDate.of(-5, 4, 15).toEpochDay(),
+						table.nextAfter(1, LocalDate.of(-5, 3, 20).toEpochDay())),
+				() -> assertEquals(3, Arrays.stream(counts).sum()),
+				() -> assertEquals(1, counts[14]));
+	}
+
+	@Test
+	@DisplayName("the counts of each day are the same as the recurrent dates of the calendars")
+	void test_table_counts_same_as_calendar() {
+		int size = RULES.length * 50;
+		CompiledRecurrenceRule[] rules = new CompiledRecurrenceRule[size];
+		long[] startEpochDays = new long[size];
+		for (int i = 0; i < size; i++) {
+			rules[i] = RecurrenceRule.getInstance(RULES[i % RULES.length]).compile();
+			startEpochDays[i] = LocalDate.of(2017, 1, 1).plusDays(i * 17 % 800).toEpochDay();
+		}
+		long from = LocalDate.of(2016, 12, 10).toEpochDay();
+		long to = LocalDate.of(2019, 2, 20).toEpochDay();
+		int[] expected = new int[(int) (to - from + 1)];
+		for (int i = 0; i < size; i++) {
+			for (long epochDay = next(rules[i], startEpochDays[i], from - 1); epochDay != RecurrenceCalendar.NO_OCCURRENCE
+					&& epochDay <= to; epochDay = next(rules[i], startEpochDays[i], epochDay)) {
+				expected[(int) (epochDay - from)]++;
+			}
+		}
+		assertArrayEquals(expected, RecurrenceTable.of(rules, startEpochDays).countsBetween(from, to));
+	}
+
+	@Test
+	@DisplayName("the counts of a window")
+	void test_table_counts() {
+		CompiledRecurrenceRule[] rules = { RecurrenceRule.getInstance("RRULE:FREQ=DAILY;COUNT=3").compile(),
+				RecurrenceRule.getInstance("RRULE:FREQ=WEEKLY;BYDAY=MO,SA").compile(),
+				RecurrenceRule.getInstance("RRULE:FREQ=MONTHLY;BYMONTHDAY=-1").compile() };
+		long start = LocalDate.of(2018, 3, 1).toEpochDay();
+		RecurrenceTable table = RecurrenceTable.of(rules, new long[] { start, start, start });
+		// from Wednesday 2018-02-28 to Monday 2018-03-05, and Saturday 2018-03-31
+		assertAll(() -> assertArrayEquals(new int[] { 0, 1, 1, 2, 0, 1 }, table.countsBetween(start - 1, start + 4)),
+				() -> assertArrayEquals(new int[] { 2 }, table.countsBetween(start + 30, start + 30)),
+				() -> assertArrayEquals(new int[0], table.countsBetween(start, start - 1)));
+	}
+
+	private static long next(CompiledRecurrenceRule rule, long startEpochDay, long epochDay) {
+		RecurrenceCalendar calendar = RecurrenceCalendar.getInstance(LocalDate.ofEpochDay(startEpochDay), rule);
+		calendar.seek(epochDay + 1);
+		return calendar.hasNext() ? calendar.nextEpochDay() : RecurrenceCalendar.NO_OCCURRENCE;
+	}
+}
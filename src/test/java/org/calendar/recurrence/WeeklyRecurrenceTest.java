@@ -246,4 +246,26 @@ class WeeklyRecurrenceTest {
 				() -> assertEquals(LocalDate.of(2018, 1, 15), iter.next()),
 				() -> assertEquals(LocalDate.of(2018, 1, 16), iter.next()));
 	}
+
+	@Test
+	@DisplayName("every 2 weeks on Monday, Wednesday and Friday, one week at a time")
+	void test_Weekly_every_2_weeks_on_Mon_Wed_Fri_one_week_at_a_time() {
+		LocalDate start = LocalDate.of(2018, 1, 1);
+		RecurrenceCalendar recurrence = RecurrenceCalendar.getInstance(start, "RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;COUNT=6");
+		// at most one jump to the next recurrent week for each recurrent date
+		recurrence.setMaxCursorMoves(1);
+		List<LocalDate> recurDates = new ArrayList<>();
+		while (recurrence.hasNext()) {
+			LocalDate date = recurrence.next();
+			recurDates.add(date);
+		}
+		Iterator<LocalDate> iter = recurDates.iterator();
+		assertAll(() -> assertEquals(6, recurDates.size()),
+				() -> assertEquals(LocalDate.of(2018, 1, 1), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 1, 3), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 1, 5), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 1, 15), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 1, 17), iter.next()),
+				() -> assertEquals(LocalDate.of(2018, 1, 19), iter.next()));
+	}
 }